@@ -0,0 +1,7 @@
+package api;
+
+public enum ExecutorMode {
+    DISPATCHER,
+    VIRTUAL,
+    FIXED
+}
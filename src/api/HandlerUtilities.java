@@ -1,23 +1,43 @@
 package api;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 import api.adapters.DurationAdapter;
 import api.adapters.LocalDateAdapter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
+import tracker.Page;
 
+/**
+ * Plain text and single tasks are encoded up front and sent with an exact Content-Length.
+ * Lists are streamed through a {@link JsonWriter} with chunked encoding, so a response never
+ * exists as one string. JSON is compact unless the request asks for {@value #PRETTY_PARAMETER}.
+ */
 public class HandlerUtilities {
+    public static final String PRETTY_PARAMETER = "pretty";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String INDENT = "  ";
+    private static final int BUFFER_SIZE = 16 * 1024;
 
     public static void writeEndpoint404Response(HttpExchange exchange) throws IOException {
         writeResponse(exchange, "Такого эндпоинта не существует", 404);
@@ -34,13 +54,105 @@ public class HandlerUtilities {
     public static void writeResponse(HttpExchange exchange,
                                      String responseString,
                                      int responseCode) throws IOException {
+        writeResponse(exchange, responseString.getBytes(DEFAULT_CHARSET), responseCode);
+    }
+
+    public static void writeResponse(HttpExchange exchange, byte[] body, int responseCode) throws IOException {
         try (OutputStream os = exchange.getResponseBody()) {
-            exchange.sendResponseHeaders(responseCode, 0);
-            os.write(responseString.getBytes(DEFAULT_CHARSET));
+            exchange.sendResponseHeaders(responseCode, body.length > 0 ? body.length : -1);
+            os.write(body);
         }
         exchange.close();
     }
 
+    public static void writeNotModified(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    /**
+     * Writes a single object; it is small, so it is encoded first and sent with its length.
+     */
+    public static void writeJson(HttpExchange exchange, Gson gson, Object src, int responseCode)
+            throws IOException {
+        writeJson(exchange, encodeJson(exchange, gson, src, src.getClass()), null, responseCode);
+    }
+
+    /**
+     * Writes an already encoded JSON body with its length and the cursor of the next page,
+     * if any.
+     */
+    public static void writeJson(HttpExchange exchange, byte[] body, String nextCursor, int responseCode)
+            throws IOException {
+        if (nextCursor != null) {
+            exchange.getResponseHeaders().set(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        writeResponse(exchange, body, responseCode);
+    }
+
+    public static byte[] encodeJson(HttpExchange exchange, Gson gson, Object src, Type type) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = newJsonWriter(exchange, gson, out);
+        gson.toJson(src, type, writer);
+        writer.flush();
+        return out.toString().getBytes(DEFAULT_CHARSET);
+    }
+
+    /**
+     * Streams {@code src} straight into the response body with chunked encoding.
+     */
+    public static void streamJson(HttpExchange exchange, Gson gson, Object src, Type type, int responseCode)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(responseCode, 0);
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), DEFAULT_CHARSET), BUFFER_SIZE)) {
+            JsonWriter writer = newJsonWriter(exchange, gson, out);
+            gson.toJson(src, type, writer);
+            writer.flush();
+        }
+        exchange.close();
+    }
+
+    /**
+     * Streams the items of the page and passes its cursor in {@value #NEXT_CURSOR_HEADER}.
+     */
+    public static void streamPage(HttpExchange exchange, Gson gson, Page<?> page, Type type, int responseCode)
+            throws IOException {
+        if (page.nextCursor != null) {
+            exchange.getResponseHeaders().set(NEXT_CURSOR_HEADER, page.nextCursor);
+        }
+        streamJson(exchange, gson, page.items, type, responseCode);
+    }
+
+    /**
+     * Query parameters of the request; a parameter without a value maps to an empty string.
+     */
+    public static Map<String, String> getQueryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator >= 0 ? pair.substring(0, separator) : pair;
+            String value = separator >= 0 ? pair.substring(separator + 1) : "";
+            parameters.put(URLDecoder.decode(name, DEFAULT_CHARSET), URLDecoder.decode(value, DEFAULT_CHARSET));
+        }
+        return parameters;
+    }
+
+    private static JsonWriter newJsonWriter(HttpExchange exchange, Gson gson, Writer out) throws IOException {
+        JsonWriter writer = gson.newJsonWriter(out);
+        String pretty = getQueryParameters(exchange).get(PRETTY_PARAMETER);
+        if (pretty != null && !pretty.equalsIgnoreCase("false")) {
+            writer.setIndent(INDENT);
+        }
+        return writer;
+    }
+
     public static String readRequestBodyAsString(HttpExchange exchange) throws IOException {
         String input;
         try (InputStream is = exchange.getRequestBody(); InputStreamReader isr = new InputStreamReader(is); BufferedReader br = new BufferedReader(isr)) {
@@ -57,11 +169,17 @@ public class HandlerUtilities {
     }
 
     public static Gson createGson() {
-        return new GsonBuilder()
-                .setPrettyPrinting()
+        return createGson(false);
+    }
+
+    public static Gson createGson(boolean prettyPrinting) {
+        GsonBuilder builder = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateAdapter())
-                .registerTypeAdapter(Duration.class, new DurationAdapter())
-                .create();
+                .registerTypeAdapter(Duration.class, new DurationAdapter());
+        if (prettyPrinting) {
+            builder.setPrettyPrinting();
+        }
+        return builder.create();
     }
 
     public static void write500(HttpExchange exchange, IOException e) throws IOException {
@@ -4,35 +4,102 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import api.handlers.BatchHandler;
 import api.handlers.EpicTaskHandler;
 import api.handlers.HistoryTaskHandler;
 import api.handlers.PrioritizedTaskHandler;
 import api.handlers.SubTaskHandler;
 import api.handlers.TaskHandler;
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import tracker.ConcurrentTaskManager;
 import tracker.TaskManager;
 
+/**
+ * Handlers run on the HttpServer dispatcher thread by default. With {@link ExecutorMode#VIRTUAL}
+ * every exchange gets its own virtual thread, with {@link ExecutorMode#FIXED} exchanges go to a
+ * bounded pool of platform threads. When its queue is full, exchanges are handed to a single
+ * overflow thread that answers 503 without running a handler; when that thread is busy too,
+ * the connection is closed. The dispatcher never runs a handler itself.
+ * Any mode other than the dispatcher needs a {@link ConcurrentTaskManager}, e.g. from
+ * {@link tracker.Managers#getConcurrentTaskManager()}; other managers are rejected.
+ * <p>
+ * On JDK 21 the server reads request bodies while holding a monitor, so a virtual thread
+ * waiting for a slow upload keeps its carrier thread. Under {@link ExecutorMode#VIRTUAL} as
+ * many stalled uploads as there are carriers ({@code jdk.virtualThreadScheduler.parallelism})
+ * hold up all other exchanges; {@link ExecutorMode#FIXED} only loses the pool threads they
+ * occupy.
+ * <p>
+ * A positive {@code cacheBytes} enables a {@link ResponseCache} of that size for the task
+ * listings and the prioritized view.
+ * <p>
+ * The one-argument constructor reads the settings from system properties
+ * {@value #EXECUTOR_PROPERTY}, {@value #THREADS_PROPERTY}, {@value #BACKLOG_PROPERTY} and
+ * {@value #CACHE_BYTES_PROPERTY}.
+ */
 public class HttpTaskServer implements AutoCloseable {
+    public static final String EXECUTOR_PROPERTY = "kanban.http.executor";
+    public static final String THREADS_PROPERTY = "kanban.http.threads";
+    public static final String BACKLOG_PROPERTY = "kanban.http.backlog";
+    public static final String CACHE_BYTES_PROPERTY = "kanban.http.cacheBytes";
+    private static final int PORT = 8080;
+    private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+    private static final ThreadLocal<Boolean> OVERLOADED = ThreadLocal.withInitial(() -> false);
 
     private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final ExecutorService overflow;
+    private final ResponseCache cache;
 
     public HttpTaskServer(TaskManager manager) {
+        this(manager,
+                ExecutorMode.valueOf(System.getProperty(EXECUTOR_PROPERTY, ExecutorMode.DISPATCHER.name())
+                        .toUpperCase()),
+                Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(BACKLOG_PROPERTY, 0),
+                Long.getLong(CACHE_BYTES_PROPERTY, 0));
+    }
+
+    public HttpTaskServer(TaskManager manager, ExecutorMode mode, int threads, int backlog) {
+        this(manager, mode, threads, backlog, 0);
+    }
+
+    public HttpTaskServer(TaskManager manager, ExecutorMode mode, int threads, int backlog, long cacheBytes) {
+        if (mode == ExecutorMode.FIXED && threads < 1) {
+            throw new IllegalArgumentException("Thread count of the FIXED executor must be positive ("
+                    + THREADS_PROPERTY + "): " + threads);
+        }
+        if (mode != ExecutorMode.DISPATCHER && !(manager instanceof ConcurrentTaskManager)) {
+            throw new IllegalArgumentException("Executor " + mode + " (" + EXECUTOR_PROPERTY
+                    + ") needs a ConcurrentTaskManager, got " + manager.getClass().getSimpleName());
+        }
+        cache = cacheBytes > 0 ? new ResponseCache(cacheBytes) : null;
         try {
-            httpServer = HttpServer.create(new InetSocketAddress(8080), 0);
-            httpServer.createContext("/ping", (HttpExchange exchange) -> {
+            httpServer = HttpServer.create(new InetSocketAddress(PORT), backlog);
+            createContext("/ping", (HttpExchange exchange) -> {
                 try (OutputStream os = exchange.getResponseBody()) {
                     exchange.sendResponseHeaders(200, 0);
                     os.write("pong".getBytes(StandardCharsets.UTF_8));
                 }
                 exchange.close();
             });
-            httpServer.createContext("/tasks", new TaskHandler(manager));
-            httpServer.createContext("/subtasks", new SubTaskHandler(manager));
-            httpServer.createContext("/epics", new EpicTaskHandler(manager));
-            httpServer.createContext("/history", new HistoryTaskHandler(manager));
-            httpServer.createContext("/prioritized", new PrioritizedTaskHandler(manager));
+            createContext("/tasks", new TaskHandler(manager, cache));
+            createContext("/subtasks", new SubTaskHandler(manager, cache));
+            createContext("/epics", new EpicTaskHandler(manager, cache));
+            createContext("/history", new HistoryTaskHandler(manager));
+            createContext("/prioritized", new PrioritizedTaskHandler(manager, cache));
+            createContext("/batch", new BatchHandler(manager));
+            overflow = mode == ExecutorMode.FIXED ? createOverflowExecutor() : null;
+            executor = createExecutor(mode, threads, overflow);
+            httpServer.setExecutor(executor);
             httpServer.start();
             System.out.println(httpServer.getAddress().getHostString());
             System.out.println(httpServer.getAddress().getPort());
@@ -41,10 +108,73 @@ public class HttpTaskServer implements AutoCloseable {
         }
     }
 
+    private void createContext(String path, HttpHandler handler) {
+        httpServer.createContext(path, handler).getFilters().add(new OverloadFilter());
+    }
+
+    private static ExecutorService createExecutor(ExecutorMode mode, int threads, ExecutorService overflow) {
+        return switch (mode) {
+            case DISPATCHER -> null;
+            case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+            case FIXED -> new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD),
+                    (exchange, pool) -> overflow.execute(() -> {
+                        OVERLOADED.set(true);
+                        try {
+                            exchange.run();
+                        } finally {
+                            OVERLOADED.set(false);
+                        }
+                    }));
+        };
+    }
+
+    /**
+     * Runs exchanges the pool had no room for. Reading their request line and headers still
+     * takes a thread, but no handler runs; a full queue aborts, which closes the connection.
+     */
+    private static ExecutorService createOverflowExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * The response cache, or null if it is disabled.
+     */
+    public ResponseCache getCache() {
+        return cache;
+    }
+
     @Override
     public void close() {
         System.out.println("STOP");
         httpServer.stop(0);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (overflow != null) {
+            overflow.shutdownNow();
+        }
     }
-}
 
+    /**
+     * Answers 503 instead of calling the handler when the exchange runs on the overflow thread.
+     */
+    private static class OverloadFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            if (OVERLOADED.get()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            } else {
+                chain.doFilter(exchange);
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Rejects exchanges the handler pool has no room for";
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package api;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Encoded responses of read endpoints, keyed by endpoint and query and tagged with the version
+ * of the collection they were built from. A lookup hits only if the version still matches, so
+ * a mutation of a type invalidates exactly the responses built from it; the first response of
+ * a newer version drops all older ones of the same view at once.
+ * <p>
+ * Entries are evicted in least recently used order once their bodies exceed {@code maxBytes}.
+ * A body larger than the whole budget is never cached.
+ */
+public class ResponseCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries;
+    private final HashMap<String, Long> latestVersions;
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        latestVersions = new HashMap<>();
+    }
+
+    public synchronized Entry get(String key, long version) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        if (entry.body.length > maxBytes) {
+            return;
+        }
+        Long latest = latestVersions.get(entry.view);
+        if (latest != null && latest > entry.version) {
+            return;
+        }
+        if (latest == null || latest < entry.version) {
+            latestVersions.put(entry.view, entry.version);
+            removeOlderThan(entry.view, entry.version);
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= previous.body.length;
+        }
+        bytes += entry.body.length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().body.length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void removeOlderThan(String view, long version) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.view.equals(view) && entry.version < version) {
+                bytes -= entry.body.length;
+                iterator.remove();
+            }
+        }
+    }
+
+    public static class Entry {
+        public final String view;
+        public final long version;
+        public final byte[] body;
+        public final String nextCursor;
+
+        public Entry(String view, long version, byte[] body, String nextCursor) {
+            this.view = view;
+            this.version = version;
+            this.body = body;
+            this.nextCursor = nextCursor;
+        }
+    }
+}
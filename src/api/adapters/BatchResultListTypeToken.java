@@ -0,0 +1,9 @@
+package api.adapters;
+
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+import tracker.BatchResult;
+
+public class BatchResultListTypeToken extends TypeToken<List<BatchResult>> {
+}
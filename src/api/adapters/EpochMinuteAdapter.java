@@ -0,0 +1,34 @@
+package api.adapters;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import task.Task;
+import task.TaskTime;
+
+/**
+ * Reads and writes a time stored as epoch minutes in the same text form as
+ * {@link LocalDateAdapter}; {@link Task#NO_TIME} is written as null.
+ */
+public class EpochMinuteAdapter extends TypeAdapter<Long> {
+    @Override
+    public void write(JsonWriter jsonWriter, Long minute) throws IOException {
+        if (minute == null || minute == Task.NO_TIME) {
+            jsonWriter.nullValue();
+        } else {
+            jsonWriter.value(TaskTime.fromEpochMinute(minute).format(TaskTime.FORMAT));
+        }
+    }
+
+    @Override
+    public Long read(JsonReader jsonReader) throws IOException {
+        String text = jsonReader.nextString();
+        if (text.isBlank() || text.equals("null")) {
+            return Task.NO_TIME;
+        }
+        return TaskTime.toEpochMinute(LocalDateTime.parse(text, TaskTime.FORMAT));
+    }
+}
@@ -0,0 +1,32 @@
+package api.adapters;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import task.Task;
+
+/**
+ * Reads and writes a duration stored as whole minutes like {@link DurationAdapter};
+ * {@link Task#NO_DURATION} is written as null.
+ */
+public class MinutesAdapter extends TypeAdapter<Integer> {
+    @Override
+    public void write(JsonWriter jsonWriter, Integer minutes) throws IOException {
+        if (minutes == null || minutes == Task.NO_DURATION) {
+            jsonWriter.nullValue();
+        } else {
+            jsonWriter.value(minutes);
+        }
+    }
+
+    @Override
+    public Integer read(JsonReader jsonReader) throws IOException {
+        String text = jsonReader.nextString();
+        if (text.isBlank() || text.equals("null")) {
+            return Task.NO_DURATION;
+        }
+        return Math.toIntExact(Long.parseLong(text));
+    }
+}
@@ -1,21 +1,119 @@
 package api.handlers;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+import api.ResponseCache;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import task.TaskTime;
+import tracker.Page;
 import tracker.TaskManager;
 
 import static api.HandlerUtilities.createGson;
+import static api.HandlerUtilities.encodeJson;
+import static api.HandlerUtilities.streamPage;
+import static api.HandlerUtilities.writeJson;
+import static api.HandlerUtilities.writeNotModified;
 
+/**
+ * Listings are paged when the request has a {@value #LIMIT_PARAMETER} or
+ * {@value #CURSOR_PARAMETER} parameter, otherwise the whole collection is returned as before.
+ * The cursor of the next page is sent in the {@value api.HandlerUtilities#NEXT_CURSOR_HEADER}
+ * header, which is absent on the last page.
+ * <p>
+ * Listings carry an ETag built from the version counter of the manager they read. A request
+ * whose {@code If-None-Match} still matches is answered with 304 before anything is read or
+ * serialized. Tags also hold the handler's epoch, so the counters of a manager created after a
+ * restart never match tags handed out before it.
+ * <p>
+ * With a {@link ResponseCache} listings are encoded once per version and query and then sent
+ * from the cache; without one they are streamed.
+ */
 public abstract class BaseHandler implements HttpHandler {
+    static final String LIMIT_PARAMETER = "limit";
+    static final String CURSOR_PARAMETER = "cursor";
+    static final String FROM_PARAMETER = "from";
+    static final String TO_PARAMETER = "to";
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    private static final AtomicLong HANDLERS = new AtomicLong();
+
     protected final TaskManager manager;
     protected final Gson gson;
+    private final ResponseCache cache;
+    private final String epoch;
 
     protected BaseHandler(TaskManager manager) {
+        this(manager, null);
+    }
+
+    protected BaseHandler(TaskManager manager, ResponseCache cache) {
         this.manager = manager;
+        this.cache = cache;
         gson = createGson();
+        epoch = Long.toHexString(System.currentTimeMillis()) + "." + HANDLERS.incrementAndGet();
+    }
+
+    /**
+     * Answers 304 if the client already has this version of the view; otherwise sets the ETag
+     * of the response that follows. Read the version before the data, so a tag never claims
+     * more than the body it is sent with.
+     */
+    boolean isNotModified(HttpExchange exchange, String view, long version) throws IOException {
+        String tag = "\"" + epoch + "-" + view + "-" + version + "\"";
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), tag)) {
+            exchange.getResponseHeaders().set("ETag", tag);
+            writeNotModified(exchange);
+            return true;
+        }
+        exchange.getResponseHeaders().set("ETag", tag);
+        return false;
+    }
+
+    /**
+     * Sends the listing of {@code view} at {@code version}. The listing is only read on a
+     * cache miss.
+     */
+    void writeListing(HttpExchange exchange, String view, long version, Supplier<Page<?>> listing, Type type)
+            throws IOException {
+        if (cache == null) {
+            streamPage(exchange, gson, listing.get(), type, 200);
+            return;
+        }
+        String key = view + "?" + Objects.toString(exchange.getRequestURI().getRawQuery(), "");
+        ResponseCache.Entry entry = cache.get(key, version);
+        if (entry == null) {
+            Page<?> page = listing.get();
+            entry = new ResponseCache.Entry(view, version, encodeJson(exchange, gson, page.items, type),
+                    page.nextCursor);
+            cache.put(key, entry);
+        }
+        writeJson(exchange, entry.body, entry.nextCursor, 200);
+    }
+
+    private static boolean matches(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     Optional<Long> getId(HttpExchange exchange) {
@@ -27,4 +125,28 @@ public abstract class BaseHandler implements HttpHandler {
         }
     }
 
+    static boolean isPaged(Map<String, String> parameters) {
+        return parameters.containsKey(LIMIT_PARAMETER) || parameters.containsKey(CURSOR_PARAMETER);
+    }
+
+    static int getLimit(Map<String, String> parameters) {
+        String value = parameters.get(LIMIT_PARAMETER);
+        if (value == null) {
+            return DEFAULT_LIMIT;
+        }
+        int limit = Integer.parseInt(value);
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+        return limit;
+    }
+
+    static LocalDateTime getDateTime(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        try {
+            return value != null ? LocalDateTime.parse(value, TaskTime.FORMAT) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
 }
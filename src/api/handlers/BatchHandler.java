@@ -0,0 +1,137 @@
+package api.handlers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import api.HandlerUtilities;
+import api.adapters.BatchResultListTypeToken;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+import task.EStatus;
+import task.EpicTask;
+import task.SimpleTask;
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+import tracker.BatchAction;
+import tracker.BatchMode;
+import tracker.BatchOperation;
+import tracker.BatchResult;
+import tracker.TaskManager;
+
+import static api.HandlerUtilities.getQueryParameters;
+import static api.HandlerUtilities.streamJson;
+import static api.HandlerUtilities.writeEndpoint404Response;
+import static api.HandlerUtilities.writeResponse;
+
+/**
+ * POST /batch takes a JSON array of operations such as
+ * {@code {"action": "ADD", "task": {"type": "SUB", ...}}}, {@code {"action": "STATUS", "id": 3,
+ * "status": "DONE"}} or {@code {"action": "REMOVE", "id": 3}} and applies them with
+ * {@link TaskManager#applyBatch(List, BatchMode)}. The array is read element by element from the
+ * request stream. {@value #MODE_PARAMETER} selects {@code atomic} (the default) or
+ * {@code best_effort}. A subtask's epic must exist or be added earlier in the array.
+ * <p>
+ * The response lists one result per operation; a rejected atomic batch is answered with 406.
+ */
+public class BatchHandler extends BaseHandler {
+    static final String MODE_PARAMETER = "mode";
+
+    public BatchHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (getEndpoint(exchange) == BatchHandlerEndpoint.POST_BATCH) {
+                handlePostBatch(exchange);
+            } else {
+                writeEndpoint404Response(exchange);
+            }
+        } catch (IOException e) {
+            HandlerUtilities.write500(exchange, e);
+        }
+    }
+
+    private void handlePostBatch(HttpExchange exchange) throws IOException {
+        BatchMode mode;
+        List<BatchOperation> operations;
+        try {
+            mode = getMode(getQueryParameters(exchange));
+            operations = readOperations(exchange);
+        } catch (MalformedJsonException | JsonParseException | IllegalStateException | IllegalArgumentException e) {
+            writeResponse(exchange, "Неправильный формат данных", 400);
+            return;
+        }
+
+        List<BatchResult> results = manager.applyBatch(operations, mode);
+        boolean rejected = mode == BatchMode.ATOMIC && results.stream().anyMatch(result -> !result.applied);
+        streamJson(exchange, gson, results, new BatchResultListTypeToken().getType(), rejected ? 406 : 200);
+    }
+
+    private List<BatchOperation> readOperations(HttpExchange exchange) throws IOException {
+        List<BatchOperation> operations = new ArrayList<>();
+        try (JsonReader reader = gson.newJsonReader(new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                operations.add(toOperation(JsonParser.parseReader(reader).getAsJsonObject()));
+            }
+            reader.endArray();
+        }
+        return operations;
+    }
+
+    private BatchOperation toOperation(JsonObject object) {
+        BatchOperation operation = new BatchOperation();
+        if (object.has("action")) {
+            operation.action = BatchAction.valueOf(object.get("action").getAsString().toUpperCase());
+        }
+        if (object.has("id")) {
+            operation.id = object.get("id").getAsLong();
+        }
+        if (object.has("status")) {
+            operation.status = EStatus.valueOf(object.get("status").getAsString());
+        }
+        JsonElement task = object.get("task");
+        if (task != null && task.isJsonObject()) {
+            operation.task = gson.fromJson(task, taskClass(task.getAsJsonObject()));
+        }
+        return operation;
+    }
+
+    private static Class<? extends Task> taskClass(JsonObject task) {
+        if (!task.has("type")) {
+            throw new IllegalArgumentException("Task type is undefined.");
+        }
+        return switch (TaskType.valueOf(task.get("type").getAsString())) {
+            case TASK -> SimpleTask.class;
+            case EPIC -> EpicTask.class;
+            case SUB -> SubTask.class;
+        };
+    }
+
+    private static BatchMode getMode(Map<String, String> parameters) {
+        String value = parameters.get(MODE_PARAMETER);
+        return value != null ? BatchMode.valueOf(value.toUpperCase().replace('-', '_')) : BatchMode.ATOMIC;
+    }
+
+    private BatchHandlerEndpoint getEndpoint(HttpExchange exchange) {
+        String[] pathParts = exchange.getRequestURI().getPath().split("/");
+        if (pathParts.length == 2 && exchange.getRequestMethod().equals("POST")) {
+            return BatchHandlerEndpoint.POST_BATCH;
+        }
+        return BatchHandlerEndpoint.UNKNOWN;
+    }
+}
@@ -0,0 +1,6 @@
+package api.handlers;
+
+public enum BatchHandlerEndpoint {
+    POST_BATCH,
+    UNKNOWN
+}
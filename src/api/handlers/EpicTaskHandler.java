@@ -1,22 +1,27 @@
 package api.handlers;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 import api.HandlerUtilities;
+import api.ResponseCache;
 import api.adapters.EpicTaskListTypeToken;
 import api.adapters.SubTaskListTypeToken;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import task.EpicTask;
 import task.TaskType;
+import tracker.Page;
 import tracker.TaskManager;
 
+import static api.HandlerUtilities.getQueryParameters;
 import static api.HandlerUtilities.readRequestBodyAsString;
+import static api.HandlerUtilities.streamJson;
 import static api.HandlerUtilities.write400Response;
 import static api.HandlerUtilities.writeEndpoint404Response;
+import static api.HandlerUtilities.writeJson;
 import static api.HandlerUtilities.writeResponse;
 import static api.HandlerUtilities.writeTask404Response;
 
@@ -28,6 +33,10 @@ public class EpicTaskHandler extends TaskHandler {
         super(manager);
     }
 
+    public EpicTaskHandler(TaskManager manager, ResponseCache cache) {
+        super(manager, cache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -56,22 +65,29 @@ public class EpicTaskHandler extends TaskHandler {
             return;
         }
 
-        Optional<EpicTask> optTask = Optional.ofNullable(manager.findEpicTask(optId.get()));
-        if (optTask.isEmpty()) {
+        if (!(manager.peekTaskById(optId.get()) instanceof EpicTask)) {
             writeTask404Response(exchange, optId.get());
             return;
         }
 
-        writeResponse(exchange, gson.toJson(manager.findTasksByParentId(optId.get()),
-                new SubTaskListTypeToken().getType()), 200);
+        streamJson(exchange, gson, manager.findTasksByParentId(optId.get()),
+                new SubTaskListTypeToken().getType(), 200);
     }
 
-    /**
-     * @noinspection unchecked
-     */
     private void handleGetTasks(HttpExchange exchange) throws IOException {
-        List<EpicTask> tasks = (List<EpicTask>) manager.getAllTasksByType(TaskType.EPIC);
-        writeResponse(exchange, gson.toJson(tasks, new EpicTaskListTypeToken().getType()), 200);
+        long version = manager.getVersion(TaskType.EPIC);
+        if (isNotModified(exchange, "epics", version)) {
+            return;
+        }
+        Map<String, String> parameters = getQueryParameters(exchange);
+        try {
+            writeListing(exchange, "epics", version, () -> isPaged(parameters)
+                    ? manager.getTasksPage(TaskType.EPIC, parameters.get(CURSOR_PARAMETER), getLimit(parameters))
+                    : new Page<>(manager.getAllTasksByType(TaskType.EPIC), null),
+                    new EpicTaskListTypeToken().getType());
+        } catch (IllegalArgumentException e) {
+            writeResponse(exchange, e.getMessage(), 400);
+        }
     }
 
     private void handlePostTask(HttpExchange exchange) throws IOException {
@@ -97,7 +113,7 @@ public class EpicTaskHandler extends TaskHandler {
             return;
         }
 
-        writeResponse(exchange, gson.toJson(optTask.get()), 200);
+        writeJson(exchange, gson, optTask.get(), 200);
     }
 
     @Override
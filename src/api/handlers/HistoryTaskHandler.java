@@ -1,10 +1,13 @@
 package api.handlers;
 
 import java.io.IOException;
+import java.util.Map;
 
 import api.HandlerUtilities;
 import api.adapters.TaskListTypeToken;
 import com.sun.net.httpserver.HttpExchange;
+import task.Task;
+import tracker.Page;
 import tracker.TaskManager;
 
 import static api.handlers.HistoryHandlerEndpoint.GET_HISTORY;
@@ -30,9 +33,17 @@ public class HistoryTaskHandler extends BaseHandler {
     }
 
     private void handleGetHistory(HttpExchange exchange) throws IOException {
-        HandlerUtilities.writeResponse(exchange,
-                gson.toJson(manager.getHistory(), new TaskListTypeToken().getType()),
-                200);
+        Map<String, String> parameters = HandlerUtilities.getQueryParameters(exchange);
+        if (isPaged(parameters)) {
+            try {
+                Page<Task> page = manager.getHistoryPage(parameters.get(CURSOR_PARAMETER), getLimit(parameters));
+                HandlerUtilities.streamPage(exchange, gson, page, new TaskListTypeToken().getType(), 200);
+            } catch (IllegalArgumentException e) {
+                HandlerUtilities.writeResponse(exchange, e.getMessage(), 400);
+            }
+            return;
+        }
+        HandlerUtilities.streamJson(exchange, gson, manager.getHistory(), new TaskListTypeToken().getType(), 200);
     }
 
     private HistoryHandlerEndpoint getEndpoint(HttpExchange exchange) {
@@ -1,10 +1,13 @@
 package api.handlers;
 
 import java.io.IOException;
+import java.util.Map;
 
 import api.HandlerUtilities;
+import api.ResponseCache;
 import api.adapters.TaskListTypeToken;
 import com.sun.net.httpserver.HttpExchange;
+import tracker.Page;
 import tracker.TaskManager;
 
 public class PrioritizedTaskHandler extends BaseHandler {
@@ -12,6 +15,10 @@ public class PrioritizedTaskHandler extends BaseHandler {
         super(manager);
     }
 
+    public PrioritizedTaskHandler(TaskManager manager, ResponseCache cache) {
+        super(manager, cache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -26,11 +33,27 @@ public class PrioritizedTaskHandler extends BaseHandler {
         }
     }
 
+    /**
+     * Paged when the request has any of the paging parameters or a {@value #FROM_PARAMETER} /
+     * {@value #TO_PARAMETER} start time range.
+     */
     private void handleGetPrioritized(HttpExchange exchange) throws IOException {
-        HandlerUtilities.writeResponse(
-                exchange,
-                gson.toJson(manager.getPrioritizedTasks(), new TaskListTypeToken().getType()),
-                200);
+        long version = manager.getPrioritizedVersion();
+        if (isNotModified(exchange, "prioritized", version)) {
+            return;
+        }
+        Map<String, String> parameters = HandlerUtilities.getQueryParameters(exchange);
+        boolean paged = isPaged(parameters)
+                || parameters.containsKey(FROM_PARAMETER) || parameters.containsKey(TO_PARAMETER);
+        try {
+            writeListing(exchange, "prioritized", version, () -> paged
+                    ? manager.getPrioritizedPage(getDateTime(parameters, FROM_PARAMETER),
+                    getDateTime(parameters, TO_PARAMETER), parameters.get(CURSOR_PARAMETER), getLimit(parameters))
+                    : new Page<>(manager.getPrioritizedTasks(), null),
+                    new TaskListTypeToken().getType());
+        } catch (IllegalArgumentException e) {
+            HandlerUtilities.writeResponse(exchange, e.getMessage(), 400);
+        }
     }
 
     private PrioritizedHandlerEndpoint getEndpoint(HttpExchange exchange) {
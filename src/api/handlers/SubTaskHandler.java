@@ -1,20 +1,24 @@
 package api.handlers;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import api.HandlerUtilities;
+import api.ResponseCache;
 import api.adapters.SubTaskListTypeToken;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import task.SubTask;
 import task.TaskType;
+import tracker.Page;
 import tracker.TaskManager;
 
+import static api.HandlerUtilities.getQueryParameters;
 import static api.HandlerUtilities.readRequestBodyAsString;
 import static api.HandlerUtilities.write400Response;
 import static api.HandlerUtilities.writeEndpoint404Response;
+import static api.HandlerUtilities.writeJson;
 import static api.HandlerUtilities.writeResponse;
 import static api.HandlerUtilities.writeTask404Response;
 
@@ -23,6 +27,10 @@ public class SubTaskHandler extends TaskHandler {
         super(manager);
     }
 
+    public SubTaskHandler(TaskManager manager, ResponseCache cache) {
+        super(manager, cache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -41,12 +49,20 @@ public class SubTaskHandler extends TaskHandler {
         }
     }
 
-    /**
-     * @noinspection unchecked
-     */
     private void handleGetTasks(HttpExchange exchange) throws IOException {
-        List<SubTask> tasks = (List<SubTask>) manager.getAllTasksByType(TaskType.SUB);
-        writeResponse(exchange, gson.toJson(tasks, new SubTaskListTypeToken().getType()), 200);
+        long version = manager.getVersion(TaskType.SUB);
+        if (isNotModified(exchange, "subtasks", version)) {
+            return;
+        }
+        Map<String, String> parameters = getQueryParameters(exchange);
+        try {
+            writeListing(exchange, "subtasks", version, () -> isPaged(parameters)
+                    ? manager.getTasksPage(TaskType.SUB, parameters.get(CURSOR_PARAMETER), getLimit(parameters))
+                    : new Page<>(manager.getAllTasksByType(TaskType.SUB), null),
+                    new SubTaskListTypeToken().getType());
+        } catch (IllegalArgumentException e) {
+            writeResponse(exchange, e.getMessage(), 400);
+        }
     }
 
     private void handlePostTask(HttpExchange exchange) throws IOException {
@@ -72,7 +88,7 @@ public class SubTaskHandler extends TaskHandler {
             return;
         }
 
-        writeResponse(exchange, gson.toJson(optTask.get()), 200);
+        writeJson(exchange, gson, optTask.get(), 200);
     }
 
 
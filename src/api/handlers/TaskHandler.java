@@ -1,10 +1,11 @@
 package api.handlers;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import api.HandlerUtilities;
+import api.ResponseCache;
 import api.adapters.SimpleTaskListTypeToken;
 import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
@@ -12,11 +13,14 @@ import com.sun.net.httpserver.HttpHandler;
 import task.SimpleTask;
 import task.Task;
 import task.TaskType;
+import tracker.Page;
 import tracker.TaskManager;
 
+import static api.HandlerUtilities.getQueryParameters;
 import static api.HandlerUtilities.readRequestBodyAsString;
 import static api.HandlerUtilities.write400Response;
 import static api.HandlerUtilities.writeEndpoint404Response;
+import static api.HandlerUtilities.writeJson;
 import static api.HandlerUtilities.writeResponse;
 import static api.HandlerUtilities.writeTask404Response;
 
@@ -25,6 +29,10 @@ public class TaskHandler extends BaseHandler implements HttpHandler {
         super(manager);
     }
 
+    public TaskHandler(TaskManager manager, ResponseCache cache) {
+        super(manager, cache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -48,7 +56,7 @@ public class TaskHandler extends BaseHandler implements HttpHandler {
             return;
         }
 
-        if (manager.findTaskById(optId.get()) == null) {
+        if (manager.peekTaskById(optId.get()) == null) {
             writeTask404Response(exchange, optId.get());
             return;
         }
@@ -56,12 +64,20 @@ public class TaskHandler extends BaseHandler implements HttpHandler {
         writeResponse(exchange, "Таск успешно удалён.", 200);
     }
 
-    /**
-     * @noinspection unchecked
-     */
     private void handleGetTasks(HttpExchange exchange) throws IOException {
-        List<SimpleTask> tasks = (List<SimpleTask>) manager.getAllTasksByType(TaskType.TASK);
-        writeResponse(exchange, gson.toJson(tasks, new SimpleTaskListTypeToken().getType()), 200);
+        long version = manager.getVersion(TaskType.TASK);
+        if (isNotModified(exchange, "tasks", version)) {
+            return;
+        }
+        Map<String, String> parameters = getQueryParameters(exchange);
+        try {
+            writeListing(exchange, "tasks", version, () -> isPaged(parameters)
+                    ? manager.getTasksPage(TaskType.TASK, parameters.get(CURSOR_PARAMETER), getLimit(parameters))
+                    : new Page<>(manager.getAllTasksByType(TaskType.TASK), null),
+                    new SimpleTaskListTypeToken().getType());
+        } catch (IllegalArgumentException e) {
+            writeResponse(exchange, e.getMessage(), 400);
+        }
     }
 
     private void handlePostTask(HttpExchange exchange) throws IOException {
@@ -88,7 +104,7 @@ public class TaskHandler extends BaseHandler implements HttpHandler {
             return;
         }
 
-        writeResponse(exchange, gson.toJson(optTask.get()), 200);
+        writeJson(exchange, gson, optTask.get(), 200);
     }
 
 
@@ -1,14 +1,45 @@
 package task;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.LongConsumer;
 
+import api.adapters.EpochMinuteAdapter;
+import com.google.gson.annotations.JsonAdapter;
+
+/**
+ * Subtask ids are kept in a sorted {@code long[]} that is never changed in place: adding or
+ * removing an id replaces the array. Copies made with {@link #EpicTask(Task)} share the
+ * array and so keep the ids they were made with, and get their own copy of the subtask
+ * aggregates. Making a copy only reads the source, so copies can be made by concurrent
+ * readers.
+ */
 public class EpicTask extends Task {
-    private HashSet<Long> subTasksIds = new HashSet<>();
+    private static final long[] NO_IDS = new long[0];
+    private static final SubTaskAggregates NO_AGGREGATES = new SubTaskAggregates();
+
+    private long[] subTasksIds = NO_IDS;
+    /**
+     * False until the ids were checked to be sorted and distinct, e.g. after Gson filled them
+     * from a request.
+     */
+    private transient boolean subTasksIdsSorted;
+
+    @JsonAdapter(EpochMinuteAdapter.class)
+    private long endTime = NO_TIME;
 
-    private LocalDateTime endTime;
+    /**
+     * Null until the first subtask is linked; readers then see {@link #NO_AGGREGATES}.
+     */
+    private transient SubTaskAggregates aggregates;
+
+    private EpicTask() {
+        super();
+    }
 
     public EpicTask(String name, String description) {
         super(name, description);
@@ -16,18 +47,22 @@ public class EpicTask extends Task {
 
     public EpicTask(Task clone) {
         super(clone);
-        if (clone instanceof EpicTask) {
-            this.subTasksIds = ((EpicTask) clone).subTasksIds;
+        if (clone instanceof EpicTask epic) {
+            this.subTasksIds = epic.subTasksIds();
+            this.subTasksIdsSorted = true;
+            if (epic.aggregates != null) {
+                this.aggregates = new SubTaskAggregates(epic.aggregates);
+            }
         }
     }
 
     @Override
     public LocalDateTime getEndTime() {
-        return endTime;
+        return TaskTime.fromEpochMinute(endTime);
     }
 
     public void setEndTime(LocalDateTime endTime) {
-        this.endTime = endTime;
+        this.endTime = TaskTime.toEpochMinute(endTime);
     }
 
     @Override
@@ -36,15 +71,101 @@ public class EpicTask extends Task {
     }
 
     public void addSubTask(Long id) {
-        subTasksIds.add(id);
+        long[] ids = subTasksIds();
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return;
+        }
+        int insertion = -index - 1;
+        long[] copy = new long[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, insertion);
+        copy[insertion] = id;
+        System.arraycopy(ids, insertion, copy, insertion + 1, ids.length - insertion);
+        setSortedIds(copy);
     }
 
     public void addSubTasks(Long... ids) {
-        subTasksIds.addAll(Arrays.stream(ids).toList());
+        long[] current = subTasksIds();
+        long[] merged = Arrays.copyOf(current, current.length + ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            merged[current.length + i] = ids[i];
+        }
+        setSortedIds(sortedDistinct(merged));
+    }
+
+    /**
+     * Replaces all subtask ids with the given array in one step, e.g. when an epic is read from
+     * a file. The array is taken over and sorted in place.
+     */
+    public void setSubTasksIds(long[] ids) {
+        setSortedIds(sortedDistinct(ids));
+    }
+
+    /**
+     * Links the subtask and recalculates status, start, duration and end of the epic
+     * from the running aggregates. Calling it again for the same subtask replaces its
+     * previous contribution.
+     */
+    public void putSubTask(SubTask subTask) {
+        addSubTask(subTask.getId());
+        mutableAggregates().put(subTask);
+        refresh();
+    }
+
+    /**
+     * Same as {@link #putSubTask(SubTask)} for many subtasks at once; the epic is recalculated
+     * once at the end.
+     */
+    public void putSubTasks(Collection<SubTask> subTasks) {
+        if (subTasks.isEmpty()) {
+            return;
+        }
+        addSubTasks(subTasks.stream().map(Task::getId).toArray(Long[]::new));
+        SubTaskAggregates aggregates = mutableAggregates();
+        subTasks.forEach(aggregates::put);
+        refresh();
     }
 
+    /**
+     * Ids in ascending order. Allocates a list; prefer {@link #forEachSubTaskId(LongConsumer)}.
+     */
     public List<Long> getSubTasksIds() {
-        return subTasksIds.stream().toList();
+        long[] ids = subTasksIds();
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    public void forEachSubTaskId(LongConsumer action) {
+        for (long id : subTasksIds()) {
+            action.accept(id);
+        }
+    }
+
+    public int getSubTasksCount() {
+        return subTasksIds().length;
+    }
+
+    public boolean hasSubTask(long id) {
+        return Arrays.binarySearch(subTasksIds(), id) >= 0;
+    }
+
+    public int getSubTasksCount(EStatus status) {
+        return aggregates().count(status);
+    }
+
+    public Duration getSubTasksDuration() {
+        return aggregates().getDuration();
+    }
+
+    public LocalDateTime getSubTasksStartTime() {
+        return aggregates().getStartTime();
+    }
+
+    public LocalDateTime getSubTasksEndTime() {
+        return aggregates().getEndTime();
     }
 
     @Override
@@ -53,12 +174,67 @@ public class EpicTask extends Task {
     }
 
     public void removeSubTask(Long id) {
-        this.subTasksIds.remove(id);
+        long[] ids = subTasksIds();
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            long[] copy = new long[ids.length - 1];
+            System.arraycopy(ids, 0, copy, 0, index);
+            System.arraycopy(ids, index + 1, copy, index, copy.length - index);
+            setSortedIds(copy);
+        }
+        if (aggregates != null && aggregates.contains(id)) {
+            mutableAggregates().remove(id);
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        status = aggregates.getStatus();
+        setStartTime(aggregates.getStartTime());
+        setDuration(aggregates.getDuration());
+        setEndTime(aggregates.getEndTime());
+    }
+
+    /**
+     * Ids that were not checked yet are sorted into a new array on every call instead of being
+     * cached, so reading never changes the epic; every change stores a sorted array.
+     */
+    private long[] subTasksIds() {
+        if (subTasksIdsSorted) {
+            return subTasksIds;
+        }
+        return subTasksIds != null ? sortedDistinct(subTasksIds.clone()) : NO_IDS;
+    }
+
+    private void setSortedIds(long[] ids) {
+        subTasksIds = ids;
+        subTasksIdsSorted = true;
+    }
+
+    private static long[] sortedDistinct(long[] ids) {
+        Arrays.sort(ids);
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[size++] = ids[i];
+            }
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    private SubTaskAggregates aggregates() {
+        return aggregates != null ? aggregates : NO_AGGREGATES;
+    }
+
+    private SubTaskAggregates mutableAggregates() {
+        if (aggregates == null) {
+            aggregates = new SubTaskAggregates();
+        }
+        return aggregates;
     }
 
     @Override
     public String toString() {
-        Long[] subTasksIds = getSubTasksIds().toArray(Long[]::new);
-        return super.toString() + " SubTasks: " + Arrays.toString(subTasksIds);
+        return super.toString() + " SubTasks: " + Arrays.toString(subTasksIds());
     }
 }
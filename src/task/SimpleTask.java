@@ -1,6 +1,13 @@
 package task;
 
 public class SimpleTask extends Task {
+    /**
+     * Used by Gson, so that field defaults are set for fields missing in the JSON.
+     */
+    private SimpleTask() {
+        super();
+    }
+
     public SimpleTask(String name, String description) {
         super(name, description);
     }
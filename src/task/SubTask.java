@@ -3,6 +3,13 @@ package task;
 public class SubTask extends Task {
     private Long parent;
 
+    /**
+     * Used by Gson, so that field defaults are set for fields missing in the JSON.
+     */
+    private SubTask() {
+        super();
+    }
+
     public SubTask(String name, String description) {
         super(name, description);
     }
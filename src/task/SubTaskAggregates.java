@@ -0,0 +1,124 @@
+package task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/**
+ * Running totals over the subtasks of one epic: status counts, total duration and the
+ * earliest start / latest end. Each subtask's last contribution is remembered, so a
+ * subtask can be replaced or withdrawn in O(log k) without looking at its siblings.
+ */
+class SubTaskAggregates {
+    private final HashMap<Long, Contribution> contributions;
+    private final int[] statusCounts;
+    private final TreeMap<LocalDateTime, Integer> starts;
+    private final TreeMap<LocalDateTime, Integer> ends;
+    private long durationMinutes;
+    private int durationCount;
+
+    SubTaskAggregates() {
+        contributions = new HashMap<>();
+        statusCounts = new int[EStatus.values().length];
+        starts = new TreeMap<>();
+        ends = new TreeMap<>();
+    }
+
+    SubTaskAggregates(SubTaskAggregates other) {
+        contributions = new HashMap<>(other.contributions);
+        statusCounts = other.statusCounts.clone();
+        starts = new TreeMap<>(other.starts);
+        ends = new TreeMap<>(other.ends);
+        durationMinutes = other.durationMinutes;
+        durationCount = other.durationCount;
+    }
+
+    void put(SubTask subTask) {
+        remove(subTask.getId());
+        Contribution contribution = new Contribution(subTask);
+        contributions.put(subTask.getId(), contribution);
+        statusCounts[contribution.status.ordinal()]++;
+        increment(starts, contribution.start);
+        increment(ends, contribution.end);
+        if (contribution.duration != null) {
+            durationMinutes += contribution.duration.toMinutes();
+            durationCount++;
+        }
+    }
+
+    boolean remove(Long id) {
+        Contribution contribution = contributions.remove(id);
+        if (contribution == null) {
+            return false;
+        }
+        statusCounts[contribution.status.ordinal()]--;
+        decrement(starts, contribution.start);
+        decrement(ends, contribution.end);
+        if (contribution.duration != null) {
+            durationMinutes -= contribution.duration.toMinutes();
+            durationCount--;
+        }
+        return true;
+    }
+
+    boolean contains(Long id) {
+        return contributions.containsKey(id);
+    }
+
+    int size() {
+        return contributions.size();
+    }
+
+    int count(EStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    EStatus getStatus() {
+        if (size() == 0 || count(EStatus.NEW) == size()) {
+            return EStatus.NEW;
+        }
+        if (count(EStatus.DONE) == size()) {
+            return EStatus.DONE;
+        }
+        return EStatus.IN_PROGRESS;
+    }
+
+    Duration getDuration() {
+        return durationCount > 0 ? Duration.ofMinutes(durationMinutes) : null;
+    }
+
+    LocalDateTime getStartTime() {
+        return starts.isEmpty() ? null : starts.firstKey();
+    }
+
+    LocalDateTime getEndTime() {
+        return ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    private static void increment(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+        if (key != null) {
+            counts.merge(key, 1, Integer::sum);
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+        if (key != null) {
+            counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private static class Contribution {
+        public final EStatus status;
+        public final LocalDateTime start;
+        public final LocalDateTime end;
+        public final Duration duration;
+
+        public Contribution(SubTask subTask) {
+            status = subTask.getStatus() != null ? subTask.getStatus() : EStatus.NEW;
+            start = subTask.getStartTime();
+            end = subTask.getEndTime();
+            duration = subTask.getDuration();
+        }
+    }
+}
@@ -5,16 +5,35 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 
+import api.adapters.EpochMinuteAdapter;
+import api.adapters.MinutesAdapter;
+import com.google.gson.annotations.JsonAdapter;
 import tracker.TrackerUtilities;
 
+/**
+ * Start time and duration are kept as primitive minutes instead of {@link LocalDateTime} and
+ * {@link Duration} objects; the getters build those on demand. Both are minute-precise anyway,
+ * and JSON keeps the old representation through the field adapters.
+ */
 public abstract class Task {
+    /**
+     * Stored start or end minute of a task without that time.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+    /**
+     * Stored duration of a task without a duration.
+     */
+    public static final int NO_DURATION = Integer.MIN_VALUE;
+
     protected Long id;
     protected String name;
     protected String description;
     protected EStatus status;
     protected TaskType type;
-    protected Duration duration;
-    protected LocalDateTime startTime;
+    @JsonAdapter(MinutesAdapter.class)
+    protected int duration = NO_DURATION;
+    @JsonAdapter(EpochMinuteAdapter.class)
+    protected long startTime = NO_TIME;
 
     public Task() {
         this.status = EStatus.NEW;
@@ -79,11 +98,11 @@ public abstract class Task {
         result = 37 * result + description.hashCode();
         result = 37 * result + status.hashCode();
         result = 37 * result + type.hashCode();
-        if (startTime != null) {
-            result = 37 * result + startTime.hashCode();
+        if (startTime != NO_TIME) {
+            result = 37 * result + Long.hashCode(startTime);
         }
-        if (duration != null) {
-            result = 37 * result + duration.hashCode();
+        if (duration != NO_DURATION) {
+            result = 37 * result + duration;
         }
         return result;
     }
@@ -93,11 +112,11 @@ public abstract class Task {
         // 1,TASK,Task1,NEW,Description task1,
         // return String.join(delimiter, id.toString(), type.toString(), name, status.toString(), description);
         String s = "[" + type + "-" + id + "/" + status + "] " + name + ": " + description;
-        if (startTime != null && duration != null) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd.MM.yyyy");
+        if (startTime != NO_TIME && duration != NO_DURATION) {
+            DateTimeFormatter formatter = TaskTime.DISPLAY_FORMAT;
             s = s + String.format(". Start: [%s]. Duration: [%s]. End: [%s].",
-                    startTime.format(formatter),
-                    TrackerUtilities.toPrettyDuration(duration),
+                    getStartTime().format(formatter),
+                    TrackerUtilities.toPrettyDuration(getDuration()),
                     getEndTime().format(formatter));
         }
         return s;
@@ -116,8 +135,8 @@ public abstract class Task {
                 && Objects.equals(name, other.name)
                 && Objects.equals(description, other.description)
                 && status == other.status
-                && Objects.equals(startTime, other.startTime)
-                && Objects.equals(duration, other.duration);
+                && startTime == other.startTime
+                && duration == other.duration;
     }
 
     public TaskType getType() {
@@ -125,26 +144,39 @@ public abstract class Task {
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return TaskTime.fromEpochMinute(startTime);
     }
 
+    /**
+     * Start time truncated to minutes.
+     */
     public void setStartTime(LocalDateTime time) {
-        this.startTime = LocalDateTime.parse(time.format(TrackerUtilities.DATE_TIME_FORMAT),
-                TrackerUtilities.DATE_TIME_FORMAT);
+        this.startTime = TaskTime.toEpochMinute(time);
+    }
+
+    /**
+     * Start as minutes since the epoch in UTC, or {@link #NO_TIME}. Cheaper than
+     * {@link #getStartTime()} for ordering.
+     */
+    public long getStartMinute() {
+        return startTime;
     }
 
     public LocalDateTime getEndTime() {
-        if (startTime != null && duration != null) {
-            return startTime.plus(duration);
+        if (startTime != NO_TIME && duration != NO_DURATION) {
+            return TaskTime.fromEpochMinute(startTime + duration);
         }
         return null;
     }
 
     public Duration getDuration() {
-        return this.duration;
+        return duration != NO_DURATION ? Duration.ofMinutes(duration) : null;
     }
 
+    /**
+     * Duration truncated to whole minutes.
+     */
     public void setDuration(Duration duration) {
-        this.duration = duration;
+        this.duration = duration != null ? Math.toIntExact(duration.toMinutes()) : NO_DURATION;
     }
 }
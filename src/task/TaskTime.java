@@ -0,0 +1,31 @@
+package task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Task times as whole minutes since the epoch in UTC, converted arithmetically, and the
+ * shared formatters, which are immutable and built once.
+ */
+public class TaskTime {
+    /**
+     * Layout used in CSV files and JSON.
+     */
+    public static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    /**
+     * Layout used by {@link Task#toString()}.
+     */
+    public static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("HH:mm dd.MM.yyyy");
+
+    private TaskTime() {
+    }
+
+    public static long toEpochMinute(LocalDateTime time) {
+        return time != null ? Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60) : Task.NO_TIME;
+    }
+
+    public static LocalDateTime fromEpochMinute(long minute) {
+        return minute != Task.NO_TIME ? LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,8 @@
+package tracker;
+
+public enum BatchAction {
+    ADD,
+    UPDATE,
+    STATUS,
+    REMOVE
+}
@@ -0,0 +1,17 @@
+package tracker;
+
+import java.util.List;
+
+/**
+ * How {@link TaskManager#applyBatch(List, BatchMode)} treats operations that fail validation.
+ */
+public enum BatchMode {
+    /**
+     * Nothing is applied if any operation fails.
+     */
+    ATOMIC,
+    /**
+     * Valid operations are applied, failed ones are skipped.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,45 @@
+package tracker;
+
+import task.EStatus;
+import task.Task;
+
+/**
+ * One operation of a batch: {@code task} for {@link BatchAction#ADD} and
+ * {@link BatchAction#UPDATE}, {@code id} for {@link BatchAction#REMOVE}, {@code id} and
+ * {@code status} for {@link BatchAction#STATUS}.
+ */
+public class BatchOperation {
+    public BatchAction action;
+    public Task task;
+    public Long id;
+    public EStatus status;
+
+    public static BatchOperation add(Task task) {
+        BatchOperation operation = new BatchOperation();
+        operation.action = BatchAction.ADD;
+        operation.task = task;
+        return operation;
+    }
+
+    public static BatchOperation update(Task task) {
+        BatchOperation operation = new BatchOperation();
+        operation.action = BatchAction.UPDATE;
+        operation.task = task;
+        return operation;
+    }
+
+    public static BatchOperation status(Long id, EStatus status) {
+        BatchOperation operation = new BatchOperation();
+        operation.action = BatchAction.STATUS;
+        operation.id = id;
+        operation.status = status;
+        return operation;
+    }
+
+    public static BatchOperation remove(Long id) {
+        BatchOperation operation = new BatchOperation();
+        operation.action = BatchAction.REMOVE;
+        operation.id = id;
+        return operation;
+    }
+}
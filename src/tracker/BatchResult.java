@@ -0,0 +1,19 @@
+package tracker;
+
+/**
+ * Outcome of the operation at {@code index} of a batch. {@code id} is the id of the task the
+ * operation applied to; {@code error} is null if it was applied.
+ */
+public class BatchResult {
+    public final int index;
+    public final Long id;
+    public final boolean applied;
+    public final String error;
+
+    public BatchResult(int index, Long id, boolean applied, String error) {
+        this.index = index;
+        this.id = id;
+        this.applied = applied;
+        this.error = error;
+    }
+}
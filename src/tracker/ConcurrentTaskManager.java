@@ -0,0 +1,235 @@
+package tracker;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import task.EStatus;
+import task.EpicTask;
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+
+/**
+ * {@link InMemoryTaskManager} that can be shared between threads, e.g. by the handlers of
+ * an {@code HttpServer} running on a thread pool.
+ * <p>
+ * A mutation touches several structures at once (type stores, time slots, prioritized
+ * order, epic aggregates), so all of them are guarded by one read-write lock: mutations
+ * take the write lock, lookups and listings share the read lock and run in parallel.
+ * Browsing history is written by lookups too, so it is guarded by its own monitor.
+ * Lookups and listings return copies of the tasks made under the read lock, so callers can
+ * serialize them while writers change the stored tasks.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public ConcurrentTaskManager() {
+        super(new SynchronizedHistoryManager(Managers.getTasksHistoryManager()));
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        readLock = lock.readLock();
+        writeLock = lock.writeLock();
+    }
+
+    @Override
+    public Long addTask(Task task) {
+        return write(() -> super.addTask(task));
+    }
+
+    @Override
+    public void addSubTasksToEpic(Long eid, Long... sids) {
+        write(() -> super.addSubTasksToEpic(eid, sids));
+    }
+
+    @Override
+    public Task fromDto(TaskDTO dto) {
+        return read(() -> super.fromDto(dto));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> copies(super.getPrioritizedTasks()));
+    }
+
+    @Override
+    public Page<Task> getPrioritizedPage(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        return read(() -> copies(super.getPrioritizedPage(from, to, cursor, limit)));
+    }
+
+    @Override
+    public Task findTaskById(Long id) {
+        return read(() -> copy(super.findTaskById(id)));
+    }
+
+    @Override
+    public Task peekTaskById(Long id) {
+        return read(() -> copy(super.peekTaskById(id)));
+    }
+
+    @Override
+    public String printAllTasks() {
+        return read(super::printAllTasks);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(() -> copies(super.getAllTasks()));
+    }
+
+    @Override
+    public List<? extends Task> getAllTasksByType(TaskType type) {
+        return read(() -> copies(super.getAllTasksByType(type)));
+    }
+
+    @Override
+    public Page<? extends Task> getTasksPage(TaskType type, String cursor, int limit) {
+        return read(() -> copies(super.getTasksPage(type, cursor, limit)));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    @Override
+    public void updateStatus(Long id, EStatus status) {
+        write(() -> super.updateStatus(id, status));
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations, BatchMode mode) {
+        return write(() -> super.applyBatch(operations, mode));
+    }
+
+    @Override
+    public void removeTask(Long id) {
+        write(() -> super.removeTask(id));
+    }
+
+    @Override
+    public void removeRecursiveTask(Long id) {
+        write(() -> super.removeRecursiveTask(id));
+    }
+
+    @Override
+    public void removeAll() {
+        write(super::removeAll);
+    }
+
+    @Override
+    public void removeAllByType(TaskType type) {
+        write(() -> super.removeAllByType(type));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(() -> copies(super.getHistory()));
+    }
+
+    @Override
+    public Page<Task> getHistoryPage(String cursor, int limit) {
+        return read(() -> copies(super.getHistoryPage(cursor, limit)));
+    }
+
+    @Override
+    public List<SubTask> findTasksByParentId(Long parentId) {
+        return read(() -> {
+            List<SubTask> subTasks = super.findTasksByParentId(parentId);
+            if (subTasks == null) {
+                return null;
+            }
+            List<SubTask> result = new ArrayList<>(subTasks.size());
+            subTasks.forEach(subTask -> result.add(subTask != null ? new SubTask(subTask) : null));
+            return result;
+        });
+    }
+
+    @Override
+    public List<SubTask> findTasksByParentId(EpicTask task) {
+        return read(() -> super.findTasksByParentId(task));
+    }
+
+    private static Task copy(Task task) {
+        return task != null ? copyOf(task) : null;
+    }
+
+    private static List<Task> copies(Collection<? extends Task> tasks) {
+        List<Task> result = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> result.add(copyOf(task)));
+        return result;
+    }
+
+    private static Page<Task> copies(Page<? extends Task> page) {
+        return new Page<>(copies(page.items), page.nextCursor);
+    }
+
+    private <T> T read(Supplier<T> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private <T> T write(Supplier<T> action) {
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static class SynchronizedHistoryManager implements HistoryManager {
+        private final HistoryManager delegate;
+
+        public SynchronizedHistoryManager(HistoryManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized String getHistoryAsString() {
+            return delegate.getHistoryAsString();
+        }
+
+        @Override
+        public synchronized void add(Task task) {
+            delegate.add(task);
+        }
+
+        @Override
+        public synchronized List<Task> getHistory() {
+            return delegate.getHistory();
+        }
+
+        @Override
+        public synchronized List<Task> getHistory(Long afterId, int limit) {
+            return delegate.getHistory(afterId, limit);
+        }
+
+        @Override
+        public synchronized void remove(Long id) {
+            delegate.remove(id);
+        }
+
+        @Override
+        public synchronized void clear() {
+            delegate.clear();
+        }
+    }
+}
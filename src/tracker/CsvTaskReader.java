@@ -0,0 +1,250 @@
+package tracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import task.EStatus;
+import task.TaskType;
+
+/**
+ * Reads a whole task CSV file into {@link TaskDTO}s. The file is read into a heap buffer in
+ * one go and cut into line-aligned chunks that are parsed in parallel on the common fork-join
+ * pool; the result keeps the order of the file. Fields are parsed straight from the bytes and
+ * accept exactly what {@link TrackerUtilities#fromCsvToTaskDTO(String)} accepts.
+ * <p>
+ * The file is not memory-mapped: the manager replaces it right after loading, which fails on
+ * some platforms while a mapping that Java 21 can not release is still alive.
+ */
+public class CsvTaskReader {
+    private static final int FIELDS = 9;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final byte[][] TYPE_NAMES = names(TaskType.values());
+    private static final byte[][] STATUS_NAMES = names(EStatus.values());
+
+    public static List<TaskDTO> read(File file) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return read(file, Math.max(MIN_CHUNK_SIZE, (int) Math.min(Integer.MAX_VALUE, file.length() / (parallelism * 4L))));
+    }
+
+    static List<TaskDTO> read(File file, int chunkSize) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + file.getPath() + " is too large for one buffer.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("File " + file.getPath() + " is truncated.");
+                }
+            }
+            buffer.flip();
+            List<ChunkTask> chunks = split(buffer, chunkSize);
+            if (chunks.size() == 1) {
+                return chunks.get(0).compute();
+            }
+            List<TaskDTO> result = new ArrayList<>();
+            for (ChunkTask chunk : ForkJoinTask.invokeAll(chunks)) {
+                result.addAll(chunk.join());
+            }
+            return result;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e);
+        }
+    }
+
+    private static List<ChunkTask> split(ByteBuffer buffer, int chunkSize) {
+        List<ChunkTask> chunks = new ArrayList<>();
+        int size = buffer.limit();
+        int start = 0;
+        while (start < size) {
+            int end = (int) Math.min(size, (long) start + chunkSize);
+            while (end < size && buffer.get(end - 1) != '\n') {
+                end++;
+            }
+            chunks.add(new ChunkTask(buffer, start, end));
+            start = end;
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(new ChunkTask(buffer, 0, 0));
+        }
+        return chunks;
+    }
+
+    /**
+     * Runs only on the fork-join pool and is never serialized, although RecursiveTask is.
+     */
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveTask<List<TaskDTO>> {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        public ChunkTask(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.offset = start;
+            this.length = end - start;
+        }
+
+        @Override
+        protected List<TaskDTO> compute() {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            List<TaskDTO> dtos = new ArrayList<>();
+            int from = 0;
+            while (from < length) {
+                int end = from;
+                while (end < length && bytes[end] != '\n') {
+                    end++;
+                }
+                int next = end + 1;
+                if (end > from && bytes[end - 1] == '\r') {
+                    end--;
+                }
+                dtos.add(parseLine(bytes, from, end));
+                from = next;
+            }
+            return dtos;
+        }
+    }
+
+    static TaskDTO parseLine(byte[] bytes, int from, int to) {
+        int[] starts = new int[FIELDS];
+        int[] ends = new int[FIELDS];
+        int field = 0;
+        int start = from;
+        for (int i = from; i < to && field < FIELDS; i++) {
+            if (bytes[i] == ',') {
+                starts[field] = start;
+                ends[field] = i;
+                field++;
+                start = i + 1;
+            }
+        }
+        if (field < FIELDS) {
+            starts[field] = start;
+            ends[field] = to;
+            field++;
+        }
+        if (field != FIELDS) {
+            throw new IllegalArgumentException("Unexpected value to parse. Value: " +
+                    "[" + new String(bytes, from, to - from, StandardCharsets.UTF_8) + "].");
+        }
+
+        TaskDTO dto = new TaskDTO();
+        dto.id = parseLong(bytes, starts[0], ends[0]);
+        dto.type = TaskType.values()[parseEnum(bytes, starts[1], ends[1], TYPE_NAMES)];
+        dto.name = new String(bytes, starts[2], ends[2] - starts[2], StandardCharsets.UTF_8);
+        dto.status = EStatus.values()[parseEnum(bytes, starts[3], ends[3], STATUS_NAMES)];
+        dto.description = new String(bytes, starts[4], ends[4] - starts[4], StandardCharsets.UTF_8);
+        dto.startTime = isBlank(bytes, starts[5], ends[5]) ? null : parseDateTime(bytes, starts[5], ends[5]);
+        dto.endTime = isBlank(bytes, starts[6], ends[6]) ? null : parseDateTime(bytes, starts[6], ends[6]);
+        dto.duration = isBlank(bytes, starts[7], ends[7]) ? null : Duration.ofMinutes(parseLong(bytes, starts[7], ends[7]));
+        dto.parent = isBlank(bytes, starts[8], ends[8]) ? null : parseLong(bytes, starts[8], ends[8]);
+        return dto;
+    }
+
+    private static long parseLong(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = i < to && bytes[i] == '-';
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            i++;
+        }
+        if (i == to) {
+            throw numberFormat(bytes, from, to);
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberFormat(bytes, from, to);
+            }
+            // Accumulate negatively so Long.MIN_VALUE fits.
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw numberFormat(bytes, from, to);
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw numberFormat(bytes, from, to);
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parses {@code dd.MM.yyyy HH:mm}, the layout of {@link TrackerUtilities#DATE_TIME_FORMAT}.
+     */
+    private static LocalDateTime parseDateTime(byte[] bytes, int from, int to) {
+        if (to - from != 16 || bytes[from + 2] != '.' || bytes[from + 5] != '.'
+                || bytes[from + 10] != ' ' || bytes[from + 13] != ':') {
+            throw new IllegalArgumentException("Unexpected date to parse: "
+                    + new String(bytes, from, to - from, StandardCharsets.UTF_8));
+        }
+        return LocalDateTime.of(
+                digits(bytes, from + 6, 4),
+                digits(bytes, from + 3, 2),
+                digits(bytes, from, 2),
+                digits(bytes, from + 11, 2),
+                digits(bytes, from + 14, 2));
+    }
+
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberFormat(bytes, from, from + count);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int parseEnum(byte[] bytes, int from, int to, byte[][] names) {
+        for (int ordinal = 0; ordinal < names.length; ordinal++) {
+            byte[] name = names[ordinal];
+            if (name.length == to - from && Arrays.equals(name, 0, name.length, bytes, from, to)) {
+                return ordinal;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant "
+                + new String(bytes, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NumberFormatException numberFormat(byte[] bytes, int from, int to) {
+        return new NumberFormatException("For input string: \""
+                + new String(bytes, from, to - from, StandardCharsets.UTF_8) + "\"");
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (Enum<?> value : values) {
+            names[value.ordinal()] = value.name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,132 @@
+package tracker;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+
+/**
+ * Writes a task as one CSV row straight into an {@link Appendable}, in the columns read by
+ * {@link TrackerUtilities#fromCsvToTaskDTO(String)}. Nothing is allocated per row: numbers
+ * and dates are written digit by digit instead of going through a {@link TaskDTO},
+ * {@code DateTimeFormatter} and intermediate strings.
+ */
+public class CsvTaskWriter {
+    private static final char DELIMITER = ',';
+
+    public static void appendTask(Appendable out, Task task) throws IOException {
+        appendTask(out, task, false);
+    }
+
+    /**
+     * Same row with the name and description escaped by {@link #appendEscaped(Appendable, String)},
+     * so any text keeps the row on one line with nine fields. Read back with
+     * {@link TrackerUtilities#fromEscapedCsvToTaskDTO(String)}.
+     */
+    public static void appendEscapedTask(Appendable out, Task task) throws IOException {
+        appendTask(out, task, true);
+    }
+
+    private static void appendTask(Appendable out, Task task, boolean escaped) throws IOException {
+        appendLong(out, task.getId());
+        out.append(DELIMITER).append(task.getType().name());
+        out.append(DELIMITER);
+        appendText(out, task.getName(), escaped);
+        out.append(DELIMITER).append(task.getStatus().name());
+        out.append(DELIMITER);
+        appendText(out, task.getDescription(), escaped);
+        out.append(DELIMITER);
+        appendDateTime(out, task.getStartTime());
+        out.append(DELIMITER);
+        appendDateTime(out, task.getEndTime());
+        out.append(DELIMITER);
+        Duration duration = task.getDuration();
+        if (duration != null) {
+            appendLong(out, duration.toMinutes());
+        }
+        out.append(DELIMITER);
+        Long parent = task.getType() == TaskType.SUB ? ((SubTask) task).getParent() : null;
+        if (parent != null) {
+            appendLong(out, parent);
+        }
+    }
+
+    /**
+     * Writes the text with {@code %}, the delimiter and line breaks replaced by {@code %25},
+     * {@code %2C}, {@code %0A} and {@code %0D}.
+     */
+    public static void appendEscaped(Appendable out, String text) throws IOException {
+        if (text == null) {
+            out.append(null);
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '%' -> out.append("%25");
+                case DELIMITER -> out.append("%2C");
+                case '\n' -> out.append("%0A");
+                case '\r' -> out.append("%0D");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static void appendText(Appendable out, String text, boolean escaped) throws IOException {
+        if (escaped) {
+            appendEscaped(out, text);
+        } else {
+            out.append(text);
+        }
+    }
+
+    public static void appendLong(Appendable out, long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Writes {@code dd.MM.yyyy HH:mm}, the layout of {@link TrackerUtilities#DATE_TIME_FORMAT};
+     * nothing is written for null.
+     */
+    public static void appendDateTime(Appendable out, LocalDateTime time) throws IOException {
+        if (time == null) {
+            return;
+        }
+        if (time.getYear() < 0 || time.getYear() > 9999) {
+            out.append(time.format(TrackerUtilities.DATE_TIME_FORMAT));
+            return;
+        }
+        appendDigits(out, time.getDayOfMonth(), 2);
+        out.append('.');
+        appendDigits(out, time.getMonthValue(), 2);
+        out.append('.');
+        appendDigits(out, time.getYear(), 4);
+        out.append(' ');
+        appendDigits(out, time.getHour(), 2);
+        out.append(':');
+        appendDigits(out, time.getMinute(), 2);
+    }
+
+    private static void appendDigits(Appendable out, int value, int count) throws IOException {
+        for (int divisor = count == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+}
@@ -1,57 +1,460 @@
 package tracker;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import task.EStatus;
+import task.EpicTask;
+import task.SubTask;
 import task.Task;
+import task.TaskType;
 
-import static tracker.TrackerUtilities.fromCsvToTaskDTO;
-import static tracker.TrackerUtilities.fromTaskDtoToCsv;
+import static tracker.TrackerUtilities.csvDelimiter;
+import static tracker.TrackerUtilities.fromEscapedCsvToTaskDTO;
 
 public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
+    private final StorageOptions options;
+    private final HashSet<Long> dirty = new HashSet<>();
+    private WriteAheadLog wal;
+    private SnapshotSegments segments;
+    private boolean fullRewrite;
+    private int mutationDepth;
+    private long logSequence;
 
-    private FileBackedTaskManager(File file) {
+    private FileBackedTaskManager(File file, StorageOptions options) {
         this.file = file;
+        this.options = options;
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, new StorageOptions());
+    }
+
+    /**
+     * Loads the snapshot, whichever {@link StorageFormat} it was written in, and, in
+     * write-ahead log mode, replays {@code <file>.wal} on top of it.
+     * Log records the snapshot already contains, by {@link TaskSnapshot#logSequence}, are
+     * skipped. A replayed log is compacted into a fresh snapshot right away. Delta segments left by
+     * incremental snapshots are applied to the base snapshot in any mode.
+     * Files in the old CSV format are still accepted.
+     */
+    public static FileBackedTaskManager loadFromFile(File file, StorageOptions options) {
         System.out.println("Start load from file: " + file.getPath());
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        try (FileReader fr = new FileReader(file, StandardCharsets.UTF_8); BufferedReader br = new BufferedReader(fr)) {
-            String line = br.readLine();
-            while (line != null) {
-                Task task = manager.fromDto(fromCsvToTaskDTO(line));
-                manager.addTask(task);
-                line = br.readLine();
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, options);
+        boolean mapped = MappedTaskSnapshot.isSnapshot(file);
+        if (mapped || TaskSnapshot.isSnapshot(file)) {
+            TaskSnapshot snapshot = mapped ? MappedTaskSnapshot.readFrom(file) : TaskSnapshot.readFrom(file);
+            snapshot = SnapshotSegments.applySegments(file, snapshot);
+            manager.restore(snapshot.tasks, snapshot.idWatermark, snapshot.history);
+            manager.logSequence = snapshot.logSequence;
+        } else {
+            manager.loadCsv();
+            manager.fullRewrite = true;
+        }
+        if (options.incrementalSnapshots) {
+            manager.segments = new SnapshotSegments(file, options.format, options.segmentMergeThreshold);
+        }
+
+        if (options.writeAheadLog) {
+            File walFile = manager.getWalFile();
+            boolean replayed = manager.replayAll(WriteAheadLog.readRecords(walFile));
+            manager.wal = options.groupCommit
+                    ? new GroupCommitLog(walFile, options.groupCommitQueueCapacity, options.groupCommitSize,
+                    Duration.ofMillis(options.groupCommitDelayMillis))
+                    : new WriteAheadLog(walFile, options.fsyncBatchSize);
+            if (replayed) {
+                manager.checkpoint();
+            } else {
+                manager.wal.truncate(manager.sequenceRecord());
             }
-        } catch (IOException e) {
-            throw new ManagerLoadException(e);
         }
 
         return manager;
     }
 
+    /**
+     * Writes every task, not only the ones in the history, as a {@link TaskSnapshot}
+     * in the layout selected by {@link StorageOptions#format}, and drops any delta segments.
+     */
     public void save() {
-        try (FileWriter fw = new FileWriter(file, StandardCharsets.UTF_8, false)) {
-            List<Task> tasksInHistoryOrder = getHistory();
-            for (Task task : tasksInHistoryOrder) {
-                fw.write(fromTaskDtoToCsv(task) + '\n');
+        awaitLog();
+        TaskSnapshot snapshot = new TaskSnapshot();
+        snapshot.idWatermark = getIdWatermark();
+        snapshot.logSequence = logSequence;
+        snapshot.tasks = getAllTasks();
+        snapshot.history = getHistory().stream().map(Task::getId).toList();
+        writeFull(snapshot);
+        dirty.clear();
+        fullRewrite = false;
+    }
+
+    private void writeFull(TaskSnapshot snapshot) {
+        if (segments != null) {
+            segments.writeFull(snapshot);
+        } else {
+            switch (options.format) {
+                case STREAM -> snapshot.writeTo(file);
+                case MAPPED -> MappedTaskSnapshot.writeTo(snapshot, file);
+            }
+            SnapshotSegments.deleteSegments(file);
+        }
+    }
+
+    /**
+     * Collects the tasks changed or removed since the last checkpoint for a delta segment.
+     * The history is small next to the task set and is taken whole.
+     */
+    private TaskSnapshot deltaSnapshot(boolean copy) {
+        TaskSnapshot delta = new TaskSnapshot();
+        delta.idWatermark = getIdWatermark();
+        delta.logSequence = logSequence;
+        for (Long id : dirty) {
+            Task task = peekTaskById(id);
+            if (task != null) {
+                delta.tasks.add(copy ? copyOf(task) : task);
+            } else {
+                delta.removed.add(id);
             }
-        } catch (IOException e) {
-            throw new ManagerSaveException(e);
         }
+        delta.history = getHistory().stream().map(Task::getId).toList();
+        dirty.clear();
+        return delta;
+    }
+
+    /**
+     * Parses the whole file with {@link CsvTaskReader} and hands all rows to
+     * {@link #bulkLoad(List)}, which validates them together instead of running every row
+     * through addTask.
+     */
+    private void loadCsv() {
+        bulkLoad(CsvTaskReader.read(file));
+    }
+
+    /**
+     * Writes a snapshot, or only a delta segment with incremental snapshots, and truncates
+     * the write-ahead log it now contains.
+     * <p>
+     * Every logged mutation gets the next log sequence number. The snapshot stores the last
+     * one, and the truncated log starts with a {@link WalOperation#SEQUENCE} record holding it,
+     * so a crash between the two steps only leaves records that replay skips.
+     * <p>
+     * The caller waits for the disk. Only the compaction started by a mutation in group commit
+     * mode runs on the writer thread, see {@link #checkpointInBackground(GroupCommitLog)}.
+     */
+    public void checkpoint() {
+        if (segments != null && !fullRewrite) {
+            awaitLog();
+            segments.writeDelta(deltaSnapshot(false));
+        } else {
+            save();
+        }
+        if (wal != null) {
+            wal.truncate(sequenceRecord());
+        }
+    }
+
+    /**
+     * Takes copies of the tasks the checkpoint needs and leaves writing them, and truncating
+     * the log, to the group commit writer, so the mutation that reached the compaction
+     * threshold does not wait for the disk.
+     */
+    private void checkpointInBackground(GroupCommitLog log) {
+        TaskSnapshot snapshot;
+        Runnable write;
+        if (segments != null && !fullRewrite) {
+            snapshot = deltaSnapshot(true);
+            write = () -> segments.writeDelta(snapshot);
+        } else {
+            snapshot = new TaskSnapshot();
+            snapshot.idWatermark = getIdWatermark();
+            snapshot.logSequence = logSequence;
+            snapshot.tasks = getAllTasks().stream().map(InMemoryTaskManager::copyOf).toList();
+            snapshot.history = getHistory().stream().map(Task::getId).toList();
+            write = () -> writeFull(snapshot);
+        }
+        dirty.clear();
+        fullRewrite = false;
+        log.checkpoint(write, sequenceRecord());
+    }
+
+    /**
+     * Waits for checkpoints queued on the group commit writer, which own the snapshot files
+     * until they are done.
+     */
+    private void awaitLog() {
+        if (wal instanceof GroupCommitLog) {
+            wal.sync();
+        }
+    }
+
+    @Override
+    public Long addTask(Task task) {
+        return logged(() -> super.addTask(task), () -> taskRecord(WalOperation.ADD, task), () -> ids(task.getId()));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        logged(() -> super.updateTask(task), () -> taskRecord(WalOperation.UPDATE, task), () -> ids(task.getId()));
+    }
+
+    @Override
+    public void updateStatus(Long id, EStatus status) {
+        logged(() -> super.updateStatus(id, status), () -> record(WalOperation.STATUS, id, status), () -> ids(id));
+    }
+
+    @Override
+    public void addSubTasksToEpic(Long eid, Long... sids) {
+        logged(() -> super.addSubTasksToEpic(eid, sids), () -> record(WalOperation.LINK, eid,
+                        Arrays.stream(sids).map(String::valueOf).collect(Collectors.joining(csvDelimiter))),
+                () -> Stream.concat(Stream.of(eid), Arrays.stream(sids)).toArray(Long[]::new));
+    }
+
+    /**
+     * The applied operations are logged as one {@link WalOperation#BATCH} header with their
+     * count, followed by one record per operation. A batch cut short by a crash is dropped as
+     * a whole on replay.
+     */
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations, BatchMode mode) {
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        logged(() -> results.addAll(super.applyBatch(operations, mode)), () -> batchRecord(operations, results),
+                () -> operations.stream()
+                        .map(operation -> operation.task != null ? operation.task.getId() : operation.id)
+                        .toArray(Long[]::new));
+        return results;
+    }
+
+    @Override
+    public void removeTask(Long id) {
+        logged(() -> super.removeTask(id), () -> record(WalOperation.REMOVE, id), () -> ids(id));
+    }
+
+    @Override
+    public void removeRecursiveTask(Long id) {
+        logged(() -> super.removeRecursiveTask(id), () -> record(WalOperation.REMOVE_RECURSIVE, id), () -> ids(id));
+    }
+
+    @Override
+    public void removeAll() {
+        logged(super::removeAll, () -> record(WalOperation.REMOVE_ALL), null);
+    }
+
+    @Override
+    public void removeAllByType(TaskType type) {
+        logged(() -> super.removeAllByType(type), () -> record(WalOperation.REMOVE_TYPE, type), null);
     }
 
     @Override
     public void close() {
         System.out.println("Save changes.");
-        save();
+        try {
+            checkpoint();
+        } finally {
+            try {
+                if (wal != null) {
+                    wal.close();
+                }
+            } finally {
+                if (segments != null) {
+                    segments.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Log records waiting for the group commit writer; always 0 without group commit.
+     */
+    public int getPendingWrites() {
+        return wal instanceof GroupCommitLog log ? log.getQueueDepth() : 0;
+    }
+
+    /**
+     * Time the last group commit took from queueing to fsync; zero without group commit.
+     */
+    public Duration getWriteLag() {
+        return wal instanceof GroupCommitLog log ? log.getWriteLag() : Duration.ZERO;
+    }
+
+    private File getWalFile() {
+        return new File(file.getPath() + ".wal");
+    }
+
+    /**
+     * Replays the records numbered above the log sequence of the loaded snapshot and reports
+     * whether there were any. A log without a {@link WalOperation#SEQUENCE} header was written
+     * before sequence numbers and is replayed whole.
+     */
+    private boolean replayAll(List<String> records) {
+        String batch = WalOperation.BATCH.name() + csvDelimiter;
+        String header = WalOperation.SEQUENCE.name() + csvDelimiter;
+        long contained = logSequence;
+        long sequence = logSequence;
+        boolean replayed = false;
+        for (int i = 0; i < records.size(); i++) {
+            String record = records.get(i);
+            if (record.startsWith(header)) {
+                sequence = Long.parseLong(record.substring(header.length()));
+                continue;
+            }
+            boolean isBatch = record.startsWith(batch);
+            int count = isBatch ? Integer.parseInt(record.substring(batch.length())) : 0;
+            if (i + count >= records.size()) {
+                break;
+            }
+            if (++sequence > contained) {
+                if (!isBatch) {
+                    replay(record);
+                }
+                for (int j = i + 1; j <= i + count; j++) {
+                    replay(records.get(j));
+                }
+                replayed = true;
+            }
+            i += count;
+        }
+        logSequence = Math.max(contained, sequence);
+        return replayed;
+    }
+
+    private void replay(String record) {
+        String[] parts = record.split(csvDelimiter, 2);
+        String[] args = parts.length > 1 ? parts[1].split(csvDelimiter) : new String[0];
+        switch (WalOperation.valueOf(parts[0])) {
+            case ADD, UPDATE -> {
+                Task task = fromDto(fromEscapedCsvToTaskDTO(parts[1]));
+                if (peekTaskById(task.getId()) == null) {
+                    addTask(task);
+                } else {
+                    updateTask(task);
+                }
+            }
+            case STATUS -> updateStatus(Long.valueOf(args[0]), EStatus.valueOf(args[1]));
+            case LINK -> addSubTasksToEpic(Long.valueOf(args[0]),
+                    Arrays.stream(args, 1, args.length).map(Long::valueOf).toArray(Long[]::new));
+            case REMOVE -> removeTask(Long.valueOf(args[0]));
+            case REMOVE_RECURSIVE -> removeRecursiveTask(Long.valueOf(args[0]));
+            case REMOVE_TYPE -> removeAllByType(TaskType.valueOf(args[0]));
+            case REMOVE_ALL -> removeAll();
+            case BATCH, SEQUENCE -> throw new IllegalStateException("Record outside of replayAll: " + record);
+        }
+    }
+
+    private static WriteAheadLog.Record record(WalOperation operation, Object... args) {
+        return out -> {
+            out.write(operation.name());
+            for (Object arg : args) {
+                out.append(csvDelimiter).append(String.valueOf(arg));
+            }
+        };
     }
-}
 
+    private static WriteAheadLog.Record taskRecord(WalOperation operation, Task task) {
+        return out -> {
+            out.write(operation.name());
+            out.append(csvDelimiter);
+            CsvTaskWriter.appendEscapedTask(out, task);
+        };
+    }
+
+    private static WriteAheadLog.Record batchRecord(List<BatchOperation> operations, List<BatchResult> results) {
+        List<WriteAheadLog.Record> records = new ArrayList<>(results.size());
+        for (BatchResult result : results) {
+            if (!result.applied) {
+                continue;
+            }
+            BatchOperation operation = operations.get(result.index);
+            records.add(switch (operation.action) {
+                case ADD -> taskRecord(WalOperation.ADD, operation.task);
+                case UPDATE -> taskRecord(WalOperation.UPDATE, operation.task);
+                case STATUS -> record(WalOperation.STATUS, operation.id, operation.status);
+                case REMOVE -> record(WalOperation.REMOVE, operation.id);
+            });
+        }
+        return out -> {
+            record(WalOperation.BATCH, records.size()).writeTo(out);
+            for (WriteAheadLog.Record record : records) {
+                out.write('\n');
+                record.writeTo(out);
+            }
+        };
+    }
+
+    private WriteAheadLog.Record sequenceRecord() {
+        return record(WalOperation.SEQUENCE, logSequence);
+    }
+
+    private static Long[] ids(Long... ids) {
+        return ids;
+    }
+
+    private void logged(Runnable mutation, Supplier<WriteAheadLog.Record> record, Supplier<Long[]> touched) {
+        logged(() -> {
+            mutation.run();
+            return null;
+        }, record, touched);
+    }
+
+    /**
+     * Only the outermost mutation is logged: nested calls such as removeTask inside
+     * removeAllByType are repeated by replaying the outer record.
+     * <p>
+     * With incremental snapshots the touched tasks and their epic or subtasks are marked
+     * dirty both before and after the mutation, which covers links that were moved; a
+     * mutation without touched ids makes the next checkpoint a full one. Nested mutations
+     * mark their own ids too, e.g. the siblings removed by a recursive remove of a subtask.
+     */
+    private <T> T logged(Supplier<T> mutation, Supplier<WriteAheadLog.Record> record, Supplier<Long[]> touched) {
+        mutationDepth++;
+        try {
+            boolean outermost = mutationDepth == 1;
+            markDirty(touched);
+            T result = mutation.get();
+            markDirty(touched);
+            if (wal != null && outermost) {
+                logSequence++;
+                wal.append(record.get());
+                if (wal.size() >= options.compactionThreshold) {
+                    if (wal instanceof GroupCommitLog log) {
+                        checkpointInBackground(log);
+                    } else {
+                        checkpoint();
+                    }
+                }
+            }
+            return result;
+        } finally {
+            mutationDepth--;
+        }
+    }
+
+    private void markDirty(Supplier<Long[]> touched) {
+        if (segments == null) {
+            return;
+        }
+        if (touched == null) {
+            fullRewrite = true;
+            return;
+        }
+        for (Long id : touched.get()) {
+            if (id == null) {
+                continue;
+            }
+            dirty.add(id);
+            Task task = peekTaskById(id);
+            if (task instanceof SubTask subTask && subTask.getParent() != null) {
+                dirty.add(subTask.getParent());
+            } else if (task instanceof EpicTask epic) {
+                epic.forEachSubTaskId(dirty::add);
+            }
+        }
+    }
+}
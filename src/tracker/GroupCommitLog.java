@@ -0,0 +1,241 @@
+package tracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WriteAheadLog} whose appends return as soon as the record is queued. A single writer
+ * thread takes the queued records in groups of up to {@code groupSize}, or whatever arrived
+ * within {@code maxDelay} of the first one, writes them and fsyncs once per group.
+ * <p>
+ * The queue is bounded: when the disk falls behind, {@link #append(Record)} blocks until
+ * there is room again. A record is rendered to a string on the caller's thread, so the
+ * task it describes may change right after the call.
+ * <p>
+ * {@link #checkpoint(Runnable, Record)} queues a snapshot write behind the records appended
+ * before it; the writer thread runs it and truncates the log, so the caller does not wait.
+ */
+public class GroupCommitLog extends WriteAheadLog {
+    private static final Pending CLOSE = new Pending(null, 0, null);
+
+    private final ArrayBlockingQueue<Pending> queue;
+    private final int groupSize;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private final Object commitLock = new Object();
+    private long enqueued;
+    private long committed;
+    private int appended;
+    private volatile long lastLagNanos;
+    private volatile RuntimeException failure;
+
+    GroupCommitLog(File file, int queueCapacity, int groupSize, Duration maxDelay) {
+        super(file, Integer.MAX_VALUE);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.groupSize = Math.max(1, groupSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = new Thread(this::run, "group-commit-" + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    void append(Record record) {
+        enqueue(new Pending(render(record), System.nanoTime(), null));
+        appended++;
+    }
+
+    /**
+     * Queues {@code snapshot}, which must only use state captured before the call, to run on
+     * the writer thread once every record appended before it is synced. The log is then
+     * truncated to {@code header}. {@link #size()} starts again from 0 right away.
+     */
+    void checkpoint(Runnable snapshot, Record header) {
+        enqueue(new Pending(render(header), System.nanoTime(), snapshot));
+        appended = 0;
+    }
+
+    /**
+     * Waits until every record appended so far is written and synced.
+     */
+    @Override
+    void sync() {
+        synchronized (commitLock) {
+            while (committed < enqueued && failure == null) {
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ManagerSaveException(new InterruptedIOException("Interrupted while waiting for the log."));
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    @Override
+    int size() {
+        return appended;
+    }
+
+    @Override
+    void truncate(Record header) {
+        sync();
+        super.truncate(header);
+        appended = 0;
+    }
+
+    @Override
+    public void close() {
+        if (writer.isAlive()) {
+            enqueue(CLOSE);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            checkFailure();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Records queued but not yet written.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Time between queueing and syncing the oldest record of the last group commit.
+     */
+    public Duration getWriteLag() {
+        return Duration.ofNanos(lastLagNanos);
+    }
+
+    public long getCommittedRecords() {
+        synchronized (commitLock) {
+            return committed;
+        }
+    }
+
+    private static String render(Record record) {
+        StringWriter out = new StringWriter();
+        try {
+            record.writeTo(out);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+        return out.toString();
+    }
+
+    private void enqueue(Pending pending) {
+        checkFailure();
+        try {
+            synchronized (commitLock) {
+                enqueued++;
+            }
+            while (!queue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException(new InterruptedIOException("Interrupted while queueing a log record."));
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(groupSize);
+        boolean closing = false;
+        while (!closing) {
+            group.clear();
+            try {
+                Pending first = queue.take();
+                group.add(first);
+                long deadline = first.queuedAt + maxDelayNanos;
+                while (group.size() < groupSize) {
+                    queue.drainTo(group, groupSize - group.size());
+                    long wait = deadline - System.nanoTime();
+                    if (group.size() >= groupSize || wait <= 0 || group.get(group.size() - 1) == CLOSE) {
+                        break;
+                    }
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            closing = commit(group);
+        }
+    }
+
+    /**
+     * Writes one group with a single fsync and reports whether it ended with the close marker.
+     * A checkpoint in the group syncs the records before it, writes the snapshot and truncates
+     * the log.
+     */
+    private boolean commit(List<Pending> group) {
+        boolean closing = false;
+        int written = 0;
+        try {
+            for (Pending pending : group) {
+                if (pending == CLOSE) {
+                    closing = true;
+                } else if (pending.checkpoint != null) {
+                    if (written > 0) {
+                        super.sync();
+                        written = 0;
+                    }
+                    pending.checkpoint.run();
+                    super.truncate(out -> out.write(pending.record));
+                } else {
+                    super.append(out -> out.write(pending.record));
+                    written++;
+                }
+            }
+            if (written > 0) {
+                super.sync();
+                lastLagNanos = System.nanoTime() - group.get(0).queuedAt;
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+            closing = true;
+        }
+        synchronized (commitLock) {
+            committed += group.size();
+            commitLock.notifyAll();
+        }
+        return closing;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static class Pending {
+        public final String record;
+        public final long queuedAt;
+        public final Runnable checkpoint;
+
+        public Pending(String record, long queuedAt, Runnable checkpoint) {
+            this.record = record;
+            this.queuedAt = queuedAt;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
@@ -11,6 +11,12 @@ public interface HistoryManager {
 
     List<Task> getHistory();
 
+    /**
+     * Up to {@code limit} entries that follow the task with id {@code afterId}, or from the
+     * oldest entry if it is null; null if that task is not in the history.
+     */
+    List<Task> getHistory(Long afterId, int limit);
+
     void remove(Long id);
 
     void clear();
@@ -17,6 +17,11 @@ public class InMemoryHistoryManager implements HistoryManager {
         return simpleLinkedHashMap.getValues();
     }
 
+    @Override
+    public List<Task> getHistory(Long afterId, int limit) {
+        return simpleLinkedHashMap.getValues(afterId, limit);
+    }
+
     @Override
     public void add(Task task) {
         addLast(task);
@@ -1,14 +1,17 @@
 package tracker;
 
-import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.TreeSet;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
 
 import task.EStatus;
@@ -16,90 +19,234 @@ import task.EpicTask;
 import task.SimpleTask;
 import task.SubTask;
 import task.Task;
+import task.TaskTime;
 import task.TaskType;
 
+/**
+ * Tasks of each type are also kept in id order, so a page of a listing starts with a lookup in
+ * the tree instead of a scan over everything before it.
+ * <p>
+ * Every mutation bumps the version of the type of each task it changes, and the prioritized
+ * version if such a task is or was in the prioritized view. Versions are atomic, so they can
+ * be read without the locks of {@link ConcurrentTaskManager}.
+ */
 public class InMemoryTaskManager implements TaskManager {
-    private static Long idGeneratorCount = 0L;
-    private final HashMap<Long, SimpleTask> simpleTasks;
-    private final HashMap<Long, EpicTask> epicTasks;
-    private final HashMap<Long, SubTask> subTasks;
+    private static final int PRIORITIZED_VERSION = TaskType.values().length;
 
-    private final TreeSet<Task> tasksOrderByStartTime;
+    private final AtomicLong idGenerator;
+    private final LongObjectHashMap<Task> tasks;
+    private final TreeMap<Long, SimpleTask> simpleTasks;
+    private final TreeMap<Long, EpicTask> epicTasks;
+    private final TreeMap<Long, SubTask> subTasks;
+
+    private final PrioritizedTaskIndex tasksOrderByStartTime;
+    private final TimeSlotIndex timeSlots;
     private final HistoryManager historyManager;
+    private final AtomicLongArray versions;
+    /**
+     * Subtasks by epic id waiting to be linked at the end of a batch; null outside of one.
+     */
+    private HashMap<Long, List<SubTask>> deferredLinks;
 
     public InMemoryTaskManager() {
-        idGeneratorCount = 0L;
-        epicTasks = new HashMap<>();
-        subTasks = new HashMap<>();
-        simpleTasks = new HashMap<>();
-        historyManager = Managers.getTasksHistoryManager();
-        tasksOrderByStartTime = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+        this(Managers.getTasksHistoryManager());
+    }
+
+    protected InMemoryTaskManager(HistoryManager historyManager) {
+        idGenerator = new AtomicLong();
+        tasks = new LongObjectHashMap<>();
+        epicTasks = new TreeMap<>();
+        subTasks = new TreeMap<>();
+        simpleTasks = new TreeMap<>();
+        this.historyManager = historyManager;
+        tasksOrderByStartTime = new PrioritizedTaskIndex();
+        timeSlots = new TimeSlotIndex();
+        versions = new AtomicLongArray(PRIORITIZED_VERSION + 1);
     }
 
     @Override
     public Long addTask(Task task) {
         if (task.getId() == null) {
-            task.setId(idGeneratorCount++);
-        } else if (findTaskById(task.getId()) != null) {
+            task.setId(idGenerator.getAndIncrement());
+        } else if (getTask(task.getId()) != null) {
             throw new IllegalArgumentException("Attempt to rewrite existed task.");
-        } else if (idGeneratorCount <= task.getId()) {
-            idGeneratorCount = task.getId() + 1;
+        } else {
+            idGenerator.accumulateAndGet(task.getId() + 1, Math::max);
         }
 
         if (!isValid(task)) {
             throw new IllegalArgumentException("Tasks intersection.");
         }
 
-        switch (task.getType()) {
-            case SUB -> {
-                subTasks.put(task.getId(), (SubTask) task);
-                Optional.ofNullable(((SubTask) task).getParent())
-                        .ifPresent(parent -> {
-                            checkEpicStatus(parent);
-                            checkDuration(parent);
-                        });
+        store(task);
+        if (task.getType() == TaskType.SUB) {
+            linkToParent((SubTask) task);
+        }
+        historyManager.add(task);
+
+        return task.getId();
+    }
+
+    /**
+     * Replaces the content of the manager with tasks that were validated before, e.g. read
+     * from a snapshot. Every task is put into every index once, without the intersection
+     * check of {@link #addTask(Task)}; subtasks are linked to their epics afterwards.
+     */
+    protected void restore(List<Task> restored, long idWatermark, List<Long> historyIds) {
+        clear();
+        long nextId = idWatermark;
+        List<SubTask> restoredSubTasks = new ArrayList<>();
+        for (Task task : restored) {
+            store(task);
+            nextId = Math.max(nextId, task.getId() + 1);
+            if (task.getType() == TaskType.SUB) {
+                restoredSubTasks.add((SubTask) task);
+            }
+        }
+        linkAll(restoredSubTasks);
+        idGenerator.set(nextId);
+        for (Long id : historyIds) {
+            Task task = getTask(id);
+            if (task != null) {
+                historyManager.add(task);
+            }
+        }
+    }
+
+    /**
+     * Adds many tasks at once, e.g. every row of a file. All of them are validated before the
+     * first one is stored: ids must be new and intervals are checked with one sort and sweep
+     * over the group. Subtasks are linked to their epics after all tasks are stored, and the
+     * tasks enter the history in the given order.
+     */
+    protected void bulkLoad(List<TaskDTO> dtos) {
+        List<Task> loaded = new ArrayList<>(dtos.size());
+        HashSet<Long> ids = new HashSet<>();
+        for (TaskDTO dto : dtos) {
+            Task task = createTask(dto);
+            if (task.getId() != null && (getTask(task.getId()) != null || !ids.add(task.getId()))) {
+                throw new IllegalArgumentException("Attempt to rewrite existed task.");
+            }
+            loaded.add(task);
+        }
+        if (timeSlots.overlapsAny(loaded)) {
+            throw new IllegalArgumentException("Tasks intersection.");
+        }
 
+        for (Task task : loaded) {
+            if (task.getId() == null) {
+                task.setId(idGenerator.getAndIncrement());
+            } else {
+                idGenerator.accumulateAndGet(task.getId() + 1, Math::max);
+            }
+            store(task);
+        }
+        List<SubTask> loadedSubTasks = new ArrayList<>();
+        for (Task task : loaded) {
+            if (task.getType() == TaskType.SUB) {
+                SubTask subTask = (SubTask) task;
+                if (getEpic(subTask.getParent()) != null) {
+                    loadedSubTasks.add(subTask);
+                } else {
+                    subTask.removeParent();
+                }
             }
+            historyManager.add(task);
+        }
+        linkAll(loadedSubTasks);
+    }
+
+    /**
+     * Links stored subtasks grouped by epic, so every epic is recalculated once however many
+     * subtasks it gets.
+     */
+    private void linkAll(List<SubTask> linked) {
+        HashMap<Long, List<SubTask>> byParent = new HashMap<>();
+        for (SubTask subTask : linked) {
+            if (subTask.getParent() != null) {
+                byParent.computeIfAbsent(subTask.getParent(), eid -> new ArrayList<>()).add(subTask);
+            }
+        }
+        byParent.forEach((eid, group) -> {
+            EpicTask epic = getEpic(eid);
+            if (epic != null) {
+                epic.putSubTasks(group);
+                epicChanged(epic);
+            }
+        });
+    }
+
+    protected long getIdWatermark() {
+        return idGenerator.get();
+    }
+
+    private void store(Task task) {
+        switch (task.getType()) {
+            case SUB -> subTasks.put(task.getId(), (SubTask) task);
             case TASK -> simpleTasks.put(task.getId(), (SimpleTask) task);
             case EPIC -> epicTasks.put(task.getId(), (EpicTask) task);
         }
+        tasks.put(task.getId(), task);
+        timeSlots.add(task);
+        tasksOrderByStartTime.put(task);
+        changed(task);
+    }
 
-        historyManager.add(task);
-        if (task.getStartTime() != null) {
-            addTaskToTreeSet(task);
+    @Override
+    public long getVersion(TaskType type) {
+        return versions.get(type.ordinal());
+    }
+
+    @Override
+    public long getPrioritizedVersion() {
+        return versions.get(PRIORITIZED_VERSION);
+    }
+
+    /**
+     * Called after a task was changed or stored, and before it is removed.
+     */
+    private void changed(Task task) {
+        versions.incrementAndGet(task.getType().ordinal());
+        if (task.getStartMinute() != Task.NO_TIME || tasksOrderByStartTime.contains(task.getId())) {
+            versions.incrementAndGet(PRIORITIZED_VERSION);
         }
+    }
 
-        return task.getId();
+    /**
+     * Called after the times of a stored epic were recalculated from its subtasks: its start
+     * may have moved, so it is put into the prioritized index again under its current key.
+     */
+    private void epicChanged(EpicTask epic) {
+        changed(epic);
+        tasksOrderByStartTime.put(epic);
     }
 
     private boolean isValid(Task task) {
-        return
-                !(tasksOrderByStartTime.stream()
-                        .anyMatch(t -> t.getStartTime().isEqual(task.getStartTime()))
-                        || tasksOrderByStartTime.stream()
-                        .anyMatch(t -> t.getStartTime().isBefore(task.getStartTime())
-                                && (t.getEndTime().isAfter(task.getStartTime())))
-                        || tasksOrderByStartTime.stream()
-                        .anyMatch(t -> task.getStartTime().isBefore(t.getStartTime())
-                                && task.getEndTime().isAfter(t.getStartTime())));
+        return !timeSlots.overlaps(task);
     }
 
 
     @Override
     public void addSubTasksToEpic(Long eid, Long... sids) {
-        if (epicTasks.containsKey(eid)) {
-            EpicTask task = epicTasks.get(eid);
+        EpicTask task = getEpic(eid);
+        if (task != null) {
             String sb = Arrays.stream(sids)
-                    .filter(sid -> !subTasks.containsKey(sid))
+                    .filter(sid -> getSub(sid) == null)
                     .map(sid -> "Did not find sub task with id: [" + sid + "]\n")
                     .collect(Collectors.joining());
             if (sb.length() > 0) {
                 throw new IllegalArgumentException(sb);
             }
-            task.addSubTasks(sids);
-            Arrays.stream(sids).forEach(sid -> subTasks.get(sid).setParent(eid));
-            checkDuration(task.getId());
-            checkEpicStatus(task.getId());
+            for (Long sid : sids) {
+                SubTask subTask = getSub(sid);
+                if (!Objects.equals(subTask.getParent(), eid)) {
+                    unlinkFromParent(subTask);
+                }
+                subTask.setParent(eid);
+                task.putSubTask(subTask);
+                changed(subTask);
+            }
+            epicChanged(task);
         } else {
             throw new IllegalArgumentException("Did not find epic task with id: [" + eid + "]");
         }
@@ -107,7 +254,19 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public Task fromDto(TaskDTO dto) throws NumberFormatException {
-        Task task = new SimpleTask(dto.name, dto.description);
+        Task task = createTask(dto);
+        if (task.getType() == TaskType.SUB && getEpic(dto.parent) == null) {
+            ((SubTask) task).removeParent();
+        }
+        return task;
+    }
+
+    private static Task createTask(TaskDTO dto) {
+        Task task = switch (dto.type) {
+            case TASK -> new SimpleTask(dto.name, dto.description);
+            case EPIC -> new EpicTask(dto.name, dto.description);
+            case SUB -> new SubTask(dto.name, dto.description);
+        };
         task.setId(dto.id);
         task.setStatus(dto.status);
         if (dto.startTime != null) {
@@ -115,61 +274,62 @@ public class InMemoryTaskManager implements TaskManager {
             task.setDuration(dto.duration);
         }
         switch (dto.type) {
-            case TASK -> {
-                return task;
-            }
-            case EPIC -> {
-                return new EpicTask(task);
-            }
-            case SUB -> {
-                SubTask subTask = new SubTask(task);
-                Long parentId = dto.parent;
-                if (epicTasks.containsKey(parentId)) {
-                    subTask.setParent(parentId);
-                    epicTasks.get(parentId).addSubTask(subTask.getId());
-                    checkDuration(parentId);
-                }
-                return subTask;
+            case EPIC -> ((EpicTask) task).setEndTime(dto.endTime);
+            case SUB -> ((SubTask) task).setParent(dto.parent);
+            default -> {
             }
-            default -> throw new IllegalArgumentException("Unknown task type: [" + dto.type + "]");
         }
+        return task;
     }
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return tasksOrderByStartTime.stream().toList();
+        return tasksOrderByStartTime.getValues();
     }
 
-    private void addTaskToTreeSet(Task task) {
-        if (tasksOrderByStartTime.contains(task)) {
-            System.out.println("tasks were changed. Update tree.");
-            tasksOrderByStartTime.remove(task);
-        }
-        tasksOrderByStartTime.add(task);
+    @Override
+    public Page<Task> getPrioritizedPage(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        checkLimit(limit);
+        return tasksOrderByStartTime.getPage(from != null ? TaskTime.toEpochMinute(from) : Long.MIN_VALUE,
+                to != null ? TaskTime.toEpochMinute(to) : Long.MAX_VALUE, cursor, limit);
     }
 
     @Override
     public Task findTaskById(Long id) {
-        Task result = null;
-        Task copy = null;
-        if (simpleTasks.containsKey(id)) {
-            result = simpleTasks.get(id);
-            copy = new SimpleTask(result);
-        }
-        if (epicTasks.containsKey(id)) {
-            result = epicTasks.get(id);
-            copy = new EpicTask(result);
-        }
-        if (subTasks.containsKey(id)) {
-            result = subTasks.get(id);
-            copy = new SubTask(result);
-        }
+        Task result = getTask(id);
         if (result != null) {
-            historyManager.add(copy);
+            historyManager.add(copyOf(result));
         }
         return result;
     }
 
+    @Override
+    public Task peekTaskById(Long id) {
+        return getTask(id);
+    }
+
+    private Task getTask(Long id) {
+        return id != null ? tasks.get(id) : null;
+    }
+
+    private EpicTask getEpic(Long id) {
+        Task task = getTask(id);
+        return task != null && task.getType() == TaskType.EPIC ? (EpicTask) task : null;
+    }
+
+    private SubTask getSub(Long id) {
+        Task task = getTask(id);
+        return task != null && task.getType() == TaskType.SUB ? (SubTask) task : null;
+    }
+
+    static Task copyOf(Task task) {
+        return switch (task.getType()) {
+            case TASK -> new SimpleTask(task);
+            case EPIC -> new EpicTask(task);
+            case SUB -> new SubTask(task);
+        };
+    }
+
     @Override
     public EpicTask findEpicTask(Long id) {
         return (EpicTask) findTaskById(id);
@@ -233,41 +393,184 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    @Override
+    public Page<? extends Task> getTasksPage(TaskType type, String cursor, int limit) {
+        checkLimit(limit);
+        Long after = cursor != null ? parseIdCursor(cursor) : null;
+        return switch (type) {
+            case SUB -> idPage(subTasks, after, limit);
+            case TASK -> idPage(simpleTasks, after, limit);
+            case EPIC -> idPage(epicTasks, after, limit);
+        };
+    }
+
+    private static <T extends Task> Page<T> idPage(NavigableMap<Long, T> store, Long after, int limit) {
+        NavigableMap<Long, T> tail = after != null ? store.tailMap(after, false) : store;
+        List<T> result = new ArrayList<>(Math.min(limit, tail.size()));
+        for (T task : tail.values()) {
+            if (result.size() == limit) {
+                return new Page<>(result, String.valueOf(result.get(limit - 1).getId()));
+            }
+            result.add(task);
+        }
+        return new Page<>(result, null);
+    }
+
+    private static Long parseIdCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive.");
+        }
+    }
+
     @Override
     public void updateTask(Task task) {
-        Task result = null;
         if (!isValid(task)) {
             throw new IllegalArgumentException("Tasks intersection.");
         }
+        replace(task);
+    }
+
+    private void replace(Task task) {
+        Task result = null;
         switch (task.getType()) {
             case SUB -> {
                 result = subTasks.replace(task.getId(), (SubTask) task);
-                checkEpicStatus(((SubTask) task).getParent());
-                checkDuration(((SubTask) task).getParent());
+                if (result != null) {
+                    if (!Objects.equals(((SubTask) result).getParent(), ((SubTask) task).getParent())) {
+                        unlinkFromParent((SubTask) result);
+                    }
+                    linkToParent((SubTask) task);
+                }
             }
             case TASK -> result = simpleTasks.replace(task.getId(), (SimpleTask) task);
-            case EPIC -> result = epicTasks.replace(task.getId(), (EpicTask) task);
+            case EPIC -> {
+                result = epicTasks.replace(task.getId(), (EpicTask) task);
+                if (result != null && result != task) {
+                    adoptSubTasks((EpicTask) task, (EpicTask) result);
+                }
+            }
         }
         if (result == null) {
             throw new IllegalArgumentException("Task with id: [" + task.getId() + "] does not exist.");
         } else {
-            if (task.getStartTime() != null) {
-                addTaskToTreeSet(task);
-            } else {
-                tasksOrderByStartTime.removeIf(t -> Objects.equals(t.getId(), task.getId()));
+            tasks.put(task.getId(), task);
+            timeSlots.add(task);
+            tasksOrderByStartTime.put(task);
+            changed(result);
+            changed(task);
+        }
+    }
+
+    /**
+     * Validates the whole batch in one pass before anything is applied. Operations are checked
+     * in order against the stored tasks and the effect of the operations before them: ids
+     * removed or moved by an earlier operation free their time slots, and the slots taken by
+     * earlier operations are kept in a small index of their own. Explicit ids of new tasks are
+     * reserved before any id is generated. Applying then skips the per-operation checks, and
+     * subtask links are collected so that every affected epic is recalculated once at the end.
+     */
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations, BatchMode mode) {
+        BatchCheck check = new BatchCheck();
+        List<String> errors = new ArrayList<>(operations.size());
+        boolean failed = false;
+        for (BatchOperation operation : operations) {
+            String error = check.check(operation);
+            errors.add(error);
+            failed |= error != null;
+        }
+        check.finish();
+
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        if (failed && mode == BatchMode.ATOMIC) {
+            for (int i = 0; i < operations.size(); i++) {
+                String error = errors.get(i);
+                results.add(new BatchResult(i, null, false,
+                        error != null ? error : "Not applied: other operations of the batch failed."));
             }
+            return results;
         }
+        check.reserveIds();
+        deferredLinks = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BatchOperation operation = operations.get(i);
+                if (errors.get(i) != null) {
+                    results.add(new BatchResult(i, null, false, errors.get(i)));
+                } else {
+                    results.add(new BatchResult(i, apply(operation), true, null));
+                }
+            }
+        } finally {
+            linkDeferred();
+        }
+        return results;
+    }
+
+    private Long apply(BatchOperation operation) {
+        switch (operation.action) {
+            case ADD -> {
+                Task task = operation.task;
+                if (task.getId() == null) {
+                    task.setId(idGenerator.getAndIncrement());
+                } else {
+                    idGenerator.accumulateAndGet(task.getId() + 1, Math::max);
+                }
+                store(task);
+                if (task.getType() == TaskType.SUB) {
+                    linkToParent((SubTask) task);
+                }
+                historyManager.add(task);
+                return task.getId();
+            }
+            case UPDATE -> {
+                replace(operation.task);
+                return operation.task.getId();
+            }
+            case STATUS -> updateStatus(operation.id, operation.status);
+            case REMOVE -> removeTask(operation.id);
+        }
+        return operation.id;
+    }
+
+    private void linkDeferred() {
+        HashMap<Long, List<SubTask>> links = deferredLinks;
+        deferredLinks = null;
+        links.forEach((eid, linked) -> {
+            EpicTask epic = getEpic(eid);
+            if (epic != null) {
+                epic.putSubTasks(linked.stream()
+                        .filter(subTask -> getSub(subTask.getId()) == subTask && eid.equals(subTask.getParent()))
+                        .toList());
+                epicChanged(epic);
+            }
+        });
     }
 
     @Override
     public void updateStatus(Long id, EStatus status) {
-        Task task = findTaskById(id);
+        if (status == null) {
+            throw new IllegalArgumentException("Status is undefined.");
+        }
+        Task task = getTask(id);
         if (task != null) {
             switch (task.getType()) {
-                case TASK -> task.setStatus(status);
+                case TASK -> {
+                    task.setStatus(status);
+                    changed(task);
+                }
                 case SUB -> {
                     task.setStatus(status);
-                    checkEpicStatus(((SubTask) task).getParent());
+                    linkToParent((SubTask) task);
+                    changed(task);
                 }
                 default -> {
                 }
@@ -275,79 +578,92 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
-    private void checkDuration(Long parent) {
-        Optional.ofNullable(epicTasks.get(parent))
-                .ifPresent(epic -> {
-                            List<SubTask> subs = epic.getSubTasksIds()
-                                    .stream()
-                                    .map(subTasks::get)
-                                    .filter(Objects::nonNull)
-                                    .toList();
-                            subs.stream()
-                                    .filter(subTask -> subTask.getStartTime() != null)
-                                    .min(Comparator.comparing(Task::getStartTime))
-                                    .ifPresent(s -> epic.setStartTime(s.getStartTime()));
-                            subs.stream()
-                                    .map(Task::getDuration)
-                                    .filter(Objects::nonNull)
-                                    .reduce(Duration::plus)
-                                    .ifPresent(epic::setDuration);
-                            subs.stream()
-                                    .filter(subTask -> subTask.getEndTime() != null)
-                                    .max(Comparator.comparing(Task::getEndTime))
-                                    .ifPresent(s -> epic.setEndTime(s.getEndTime()));
-
-                        }
-                );
-    }
-
-    private void checkEpicStatus(Long id) {
-        EpicTask epicTask = (EpicTask) findTaskById(id);
-        if (epicTask == null) {
+    private void linkToParent(SubTask subTask) {
+        if (deferredLinks != null && subTask.getParent() != null) {
+            deferredLinks.computeIfAbsent(subTask.getParent(), eid -> new ArrayList<>()).add(subTask);
             return;
         }
-        List<Long> subTasksIds = epicTask.getSubTasksIds();
-        if (subTasksIds.stream().allMatch(sId -> subTasks.get(sId).getStatus() == EStatus.DONE)) {
-            epicTask.setStatus(EStatus.DONE);
-        } else if (subTasksIds.stream().allMatch(sId -> subTasks.get(sId).getStatus() == EStatus.NEW)) {
-            epicTask.setStatus(EStatus.NEW);
-        } else {
-            epicTask.setStatus(EStatus.IN_PROGRESS);
+        EpicTask epic = getEpic(subTask.getParent());
+        if (epic != null) {
+            epic.putSubTask(subTask);
+            epicChanged(epic);
+        }
+    }
+
+    private void unlinkFromParent(SubTask subTask) {
+        EpicTask epic = getEpic(subTask.getParent());
+        if (epic != null) {
+            epic.removeSubTask(subTask.getId());
+            epicChanged(epic);
         }
     }
 
+    private void adoptSubTasks(EpicTask epic, EpicTask previous) {
+        List<SubTask> adopted = new ArrayList<>(previous.getSubTasksCount());
+        previous.forEachSubTaskId(sid -> {
+            SubTask subTask = getSub(sid);
+            if (subTask != null) {
+                adopted.add(subTask);
+            }
+        });
+        epic.putSubTasks(adopted);
+    }
+
     @Override
     public void removeTask(Long id) {
-        Task task = findTaskById(id);
+        Task task = getTask(id);
+        if (task == null) {
+            return;
+        }
+        changed(task);
         switch (task.getType()) {
             case TASK -> simpleTasks.remove(id);
             case EPIC -> {
-                ((EpicTask) task).getSubTasksIds().stream().filter(subTasks::containsKey).forEach(sid -> subTasks.get(sid).removeParent());
+                ((EpicTask) task).forEachSubTaskId(sid -> {
+                    SubTask subTask = getSub(sid);
+                    if (subTask != null) {
+                        subTask.removeParent();
+                        changed(subTask);
+                    }
+                });
                 epicTasks.remove(id);
             }
             case SUB -> {
-                Long parent = ((SubTask) task).getParent();
-                if (epicTasks.containsKey(parent)) {
-                    epicTasks.get(parent).removeSubTask(id);
-                }
+                unlinkFromParent((SubTask) task);
                 subTasks.remove(id);
             }
             default -> {
             }
         }
 
-        tasksOrderByStartTime.removeIf(t -> Objects.equals(t.getId(), id));
+        tasks.remove(id);
+        tasksOrderByStartTime.remove(id);
+        timeSlots.remove(id);
         historyManager.remove(id);
     }
 
     @Override
     public void removeRecursiveTask(Long id) {
-        Task task = findTaskById(id);
+        Task task = getTask(id);
+        if (task == null) {
+            return;
+        }
+        changed(task);
         switch (task.getType()) {
             case TASK -> simpleTasks.remove(id);
             case EPIC -> {
-                ((EpicTask) task).getSubTasksIds().forEach(subTasks::remove);
-                ((EpicTask) task).getSubTasksIds().forEach(historyManager::remove);
+                ((EpicTask) task).forEachSubTaskId(sid -> {
+                    SubTask subTask = getSub(sid);
+                    if (subTask != null) {
+                        changed(subTask);
+                    }
+                    if (subTasks.remove(sid) != null) {
+                        tasks.remove(sid);
+                    }
+                    timeSlots.remove(sid);
+                    tasksOrderByStartTime.remove(sid);
+                    historyManager.remove(sid);
+                });
                 epicTasks.remove(id);
             }
             case SUB -> {
@@ -359,23 +675,42 @@ public class InMemoryTaskManager implements TaskManager {
             }
         }
 
+        tasks.remove(id);
         historyManager.remove(id);
-        tasksOrderByStartTime.removeIf(t -> Objects.equals(t.getId(), id));
+        timeSlots.remove(id);
+        tasksOrderByStartTime.remove(id);
     }
 
     @Override
     public void removeAll() {
+        clear();
+    }
+
+    private void clear() {
+        tasks.clear();
         simpleTasks.clear();
         epicTasks.clear();
         subTasks.clear();
         historyManager.clear();
         tasksOrderByStartTime.clear();
+        timeSlots.clear();
+        for (int i = 0; i < versions.length(); i++) {
+            versions.incrementAndGet(i);
+        }
     }
 
     @Override
     public void removeAllByType(TaskType type) {
         switch (type) {
-            case TASK -> simpleTasks.clear();
+            case TASK -> {
+                for (Long id : simpleTasks.keySet()) {
+                    changed(simpleTasks.get(id));
+                    tasks.remove(id);
+                    timeSlots.remove(id);
+                    tasksOrderByStartTime.remove(id);
+                }
+                simpleTasks.clear();
+            }
             case EPIC -> {
                 List<Long> epicIds = epicTasks.keySet().stream().toList();
                 epicIds.forEach(this::removeTask);
@@ -387,7 +722,6 @@ public class InMemoryTaskManager implements TaskManager {
             default -> {
             }
         }
-        tasksOrderByStartTime.removeIf(t -> t.getType() == type);
     }
 
     @Override
@@ -395,6 +729,22 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public Page<Task> getHistoryPage(String cursor, int limit) {
+        checkLimit(limit);
+        // One more than the page tells whether a next page exists; clamped so it can not overflow.
+        List<Task> result = historyManager.getHistory(cursor != null ? parseIdCursor(cursor) : null,
+                Math.min(limit, Integer.MAX_VALUE - 1) + 1);
+        if (result == null) {
+            throw new IllegalArgumentException("Cursor is no longer valid: " + cursor);
+        }
+        if (result.size() <= limit) {
+            return new Page<>(result, null);
+        }
+        result.remove(limit);
+        return new Page<>(result, String.valueOf(result.get(limit - 1).getId()));
+    }
+
     @Override
     public String getHistoryAsString() {
         return historyManager.getHistoryAsString();
@@ -407,9 +757,11 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<SubTask> findTasksByParentId(Long parentId) {
-        EpicTask epicTask = epicTasks.get(parentId);
+        EpicTask epicTask = getEpic(parentId);
         if (epicTask != null) {
-            return epicTask.getSubTasksIds().stream().map(this::findSubTask).toList();
+            List<SubTask> result = new ArrayList<>(epicTask.getSubTasksCount());
+            epicTask.forEachSubTaskId(sid -> result.add(getSub(sid)));
+            return result;
         }
 
         return null;
@@ -419,4 +771,128 @@ public class InMemoryTaskManager implements TaskManager {
     public void close() {
 
     }
+
+    /**
+     * State of a batch under validation: tasks staged by earlier operations (null for removed
+     * ids), ids whose stored slots those operations gave up, and the slots they took. New tasks
+     * without an id get a temporary negative one until {@link #finish()}. A subtask's epic must
+     * be stored or added by an earlier operation.
+     */
+    private class BatchCheck {
+        private final HashMap<Long, Task> staged = new HashMap<>();
+        private final HashSet<Long> freed = new HashSet<>();
+        private final TimeSlotIndex batchSlots = new TimeSlotIndex();
+        private final List<Task> provisional = new ArrayList<>();
+        private long nextProvisionalId = -1;
+        private long nextFreeId = Long.MIN_VALUE;
+
+        String check(BatchOperation operation) {
+            if (operation == null || operation.action == null) {
+                return "Operation has no action.";
+            }
+            switch (operation.action) {
+                case ADD -> {
+                    Task task = operation.task;
+                    if (task == null) {
+                        return "Operation has no task.";
+                    }
+                    if (task.getId() == null) {
+                        task.setId(nextProvisionalId--);
+                        provisional.add(task);
+                    } else if (current(task.getId()) != null) {
+                        return "Attempt to rewrite existed task.";
+                    }
+                    String error = checkParent(task);
+                    if (error == null && overlaps(task)) {
+                        error = "Tasks intersection.";
+                    }
+                    if (error != null) {
+                        return error;
+                    }
+                    if (task.getId() >= 0) {
+                        nextFreeId = Math.max(nextFreeId, task.getId() + 1);
+                    }
+                    accept(task);
+                }
+                case UPDATE -> {
+                    Task task = operation.task;
+                    if (task == null) {
+                        return "Operation has no task.";
+                    }
+                    Task existing = current(task.getId());
+                    if (existing == null || existing.getType() != task.getType()) {
+                        return "Task with id: [" + task.getId() + "] does not exist.";
+                    }
+                    String error = checkParent(task);
+                    if (error != null) {
+                        return error;
+                    }
+                    if (overlaps(task)) {
+                        return "Tasks intersection.";
+                    }
+                    freed.add(task.getId());
+                    accept(task);
+                }
+                case STATUS -> {
+                    if (operation.status == null) {
+                        return "Operation has no status.";
+                    }
+                    if (current(operation.id) == null) {
+                        return "Task with id: [" + operation.id + "] does not exist.";
+                    }
+                }
+                case REMOVE -> {
+                    if (current(operation.id) == null) {
+                        return "Task with id: [" + operation.id + "] does not exist.";
+                    }
+                    freed.add(operation.id);
+                    batchSlots.remove(operation.id);
+                    staged.put(operation.id, null);
+                }
+            }
+            return null;
+        }
+
+        void finish() {
+            provisional.forEach(task -> task.setId(null));
+        }
+
+        /**
+         * Moves the id generator past the explicit ids of accepted new tasks, so no generated
+         * id can take one of them.
+         */
+        void reserveIds() {
+            if (nextFreeId != Long.MIN_VALUE) {
+                idGenerator.accumulateAndGet(nextFreeId, Math::max);
+            }
+        }
+
+        private String checkParent(Task task) {
+            if (task.getType() != TaskType.SUB) {
+                return null;
+            }
+            Long parent = ((SubTask) task).getParent();
+            Task epic = current(parent);
+            if (parent != null && (epic == null || epic.getType() != TaskType.EPIC)) {
+                return "Did not find epic task with id: [" + parent + "]";
+            }
+            return null;
+        }
+
+        private Task current(Long id) {
+            if (id == null) {
+                return null;
+            }
+            return staged.containsKey(id) ? staged.get(id) : getTask(id);
+        }
+
+        private boolean overlaps(Task task) {
+            return timeSlots.overlaps(task, freed) || batchSlots.overlaps(task);
+        }
+
+        private void accept(Task task) {
+            staged.put(task.getId(), task);
+            batchSlots.add(task);
+        }
+    }
 }
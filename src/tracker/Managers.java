@@ -7,10 +7,22 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrentTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
     public static TaskManager getFileBasedTaskManager(File file) {
         return FileBackedTaskManager.loadFromFile(file);
     }
 
+    public static TaskManager getFileBasedTaskManager(File file, StorageOptions options) {
+        return FileBackedTaskManager.loadFromFile(file, options);
+    }
+
+    public static TaskManager getFileBasedTaskManager(File file, StorageFormat format) {
+        return FileBackedTaskManager.loadFromFile(file, StorageOptions.withFormat(format));
+    }
+
     public static HistoryManager getTasksHistoryManager() {
         return new InMemoryHistoryManager();
     }
@@ -0,0 +1,312 @@
+package tracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import task.EStatus;
+import task.EpicTask;
+import task.SimpleTask;
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+
+/**
+ * {@link StorageFormat#MAPPED} layout of a {@link TaskSnapshot}, built for random access.
+ * <p>
+ * The file is a header followed by four regions: one fixed-size record per task, the subtask
+ * ids of all epics, the history ids and the strings. A record points into the other regions
+ * by offset, so every field is read with an absolute get and nothing is parsed sequentially.
+ * Strings are an int byte length followed by UTF-8 bytes. Since version 2 the file ends with
+ * a CRC32 of everything before it, and it is replaced atomically like a {@link TaskSnapshot}.
+ * Version 3 adds the log sequence to the end of the header.
+ * <p>
+ * The file is copied into a heap buffer in one read or written from one in one write rather
+ * than mapped: Java 21 can not unmap a {@link java.nio.MappedByteBuffer} before it is
+ * collected, and while a mapping is alive some platforms, Windows among them, refuse to
+ * replace or truncate the file, which the next save does.
+ */
+public class MappedTaskSnapshot {
+    static final int MAGIC = 0x4B414E4D;
+    static final int VERSION = 3;
+
+    private static final int HEADER_SIZE = 40;
+    private static final int V2_HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 64;
+    private static final int NULL_REF = -1;
+
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 1 << 1;
+    private static final int HAS_END = 1 << 2;
+    private static final int HAS_PARENT = 1 << 3;
+
+    public static boolean isSnapshot(File file) {
+        if (file.length() < Integer.BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(magic, 0);
+            return magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e);
+        }
+    }
+
+    public static TaskSnapshot readFrom(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < V2_HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File " + file.getPath() + " is not a mapped task snapshot.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Snapshot " + file.getPath() + " is truncated.");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("File " + file.getPath() + " is not a mapped task snapshot.");
+            }
+            int version = buffer.getInt(4);
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            int footer = buffer.limit() - Long.BYTES;
+            if (version > 1 && checksum(buffer, footer) != buffer.getLong(footer)) {
+                throw new IOException("Snapshot " + file.getPath() + " is corrupted: checksum mismatch.");
+            }
+            Layout layout = new Layout(version > 2 ? HEADER_SIZE : V2_HEADER_SIZE,
+                    buffer.getInt(16), buffer.getInt(20), buffer.getInt(24));
+
+            TaskSnapshot snapshot = new TaskSnapshot();
+            snapshot.idWatermark = buffer.getLong(8);
+            if (version > 2) {
+                snapshot.logSequence = buffer.getLong(32);
+            }
+            snapshot.tasks = new ArrayList<>(layout.taskCount);
+            for (int i = 0; i < layout.taskCount; i++) {
+                snapshot.tasks.add(readTask(buffer, layout, layout.recordOffset(i)));
+            }
+            snapshot.history = new ArrayList<>(layout.historyCount);
+            for (int i = 0; i < layout.historyCount; i++) {
+                snapshot.history.add(buffer.getLong(layout.historyOffset + i * Long.BYTES));
+            }
+            return snapshot;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e);
+        }
+    }
+
+    public static void writeTo(TaskSnapshot snapshot, File file) {
+        List<byte[]> strings = new ArrayList<>();
+        int linkCount = 0;
+        long stringsSize = 0;
+        for (Task task : snapshot.tasks) {
+            for (String value : new String[]{task.getName(), task.getDescription()}) {
+                byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+                strings.add(bytes);
+                stringsSize += bytes != null ? Integer.BYTES + bytes.length : 0;
+            }
+            if (task instanceof EpicTask epic) {
+                linkCount += epic.getSubTasksCount();
+            }
+        }
+        Layout layout = new Layout(HEADER_SIZE, snapshot.tasks.size(), linkCount, snapshot.history.size());
+        long size = layout.stringsOffset + stringsSize + Long.BYTES;
+
+        File temp = TaskSnapshot.tempFileFor(file);
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot of " + size + " bytes is too large for one buffer.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, snapshot.idWatermark);
+            buffer.putInt(16, layout.taskCount);
+            buffer.putInt(20, layout.linkCount);
+            buffer.putInt(24, layout.historyCount);
+            buffer.putLong(32, snapshot.logSequence);
+
+            int link = 0;
+            int string = layout.stringsOffset;
+            for (int i = 0; i < layout.taskCount; i++) {
+                Task task = snapshot.tasks.get(i);
+                int record = layout.recordOffset(i);
+                int nameRef = putString(buffer, string, strings.get(2 * i));
+                string += length(strings.get(2 * i));
+                int descriptionRef = putString(buffer, string, strings.get(2 * i + 1));
+                string += length(strings.get(2 * i + 1));
+                link = writeTask(buffer, layout, record, task, nameRef, descriptionRef, link);
+            }
+            for (int i = 0; i < layout.historyCount; i++) {
+                buffer.putLong(layout.historyOffset + i * Long.BYTES, snapshot.history.get(i));
+            }
+            int footer = (int) size - Long.BYTES;
+            buffer.putLong(footer, checksum(buffer, footer));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+        TaskSnapshot.replace(temp, file);
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, length));
+        return crc.getValue();
+    }
+
+    /**
+     * Record layout: type, status, flags, padding, then id, start, duration, end and parent
+     * as longs, then name and description offsets, first subtask index and subtask count.
+     */
+    private static int writeTask(ByteBuffer buffer, Layout layout, int record, Task task,
+                                 int nameRef, int descriptionRef, int link) {
+        int flags = 0;
+        long start = 0;
+        long duration = 0;
+        long end = 0;
+        long parent = 0;
+        int firstLink = link;
+        if (task.getStartTime() != null) {
+            flags |= HAS_START;
+            start = task.getStartTime().toEpochSecond(ZoneOffset.UTC);
+        }
+        if (task.getDuration() != null) {
+            flags |= HAS_DURATION;
+            duration = task.getDuration().getSeconds();
+        }
+        if (task instanceof EpicTask epic) {
+            if (epic.getEndTime() != null) {
+                flags |= HAS_END;
+                end = epic.getEndTime().toEpochSecond(ZoneOffset.UTC);
+            }
+            for (Long sid : epic.getSubTasksIds()) {
+                buffer.putLong(layout.linksOffset + link * Long.BYTES, sid);
+                link++;
+            }
+        }
+        if (task instanceof SubTask subTask && subTask.getParent() != null) {
+            flags |= HAS_PARENT;
+            parent = subTask.getParent();
+        }
+
+        buffer.put(record, (byte) task.getType().ordinal());
+        buffer.put(record + 1, (byte) (task.getStatus() != null ? task.getStatus().ordinal() : -1));
+        buffer.put(record + 2, (byte) flags);
+        buffer.putLong(record + 4, task.getId());
+        buffer.putLong(record + 12, start);
+        buffer.putLong(record + 20, duration);
+        buffer.putLong(record + 28, end);
+        buffer.putLong(record + 36, parent);
+        buffer.putInt(record + 44, nameRef);
+        buffer.putInt(record + 48, descriptionRef);
+        buffer.putInt(record + 52, firstLink);
+        buffer.putInt(record + 56, link - firstLink);
+        return link;
+    }
+
+    private static Task readTask(ByteBuffer buffer, Layout layout, int record) {
+        TaskType type = TaskType.values()[buffer.get(record)];
+        byte status = buffer.get(record + 1);
+        int flags = buffer.get(record + 2);
+        String name = getString(buffer, buffer.getInt(record + 44));
+        String description = getString(buffer, buffer.getInt(record + 48));
+        Task task = switch (type) {
+            case TASK -> new SimpleTask(name, description);
+            case EPIC -> new EpicTask(name, description);
+            case SUB -> new SubTask(name, description);
+        };
+        task.setId(buffer.getLong(record + 4));
+        task.setStatus(status >= 0 ? EStatus.values()[status] : null);
+        if ((flags & HAS_START) != 0) {
+            task.setStartTime(LocalDateTime.ofEpochSecond(buffer.getLong(record + 12), 0, ZoneOffset.UTC));
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            task.setDuration(Duration.ofSeconds(buffer.getLong(record + 20)));
+        }
+        switch (type) {
+            case EPIC -> {
+                EpicTask epic = (EpicTask) task;
+                if ((flags & HAS_END) != 0) {
+                    epic.setEndTime(LocalDateTime.ofEpochSecond(buffer.getLong(record + 28), 0, ZoneOffset.UTC));
+                }
+                int firstLink = buffer.getInt(record + 52);
+                long[] ids = new long[buffer.getInt(record + 56)];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = buffer.getLong(layout.linksOffset + (firstLink + i) * Long.BYTES);
+                }
+                epic.setSubTasksIds(ids);
+            }
+            case SUB -> {
+                if ((flags & HAS_PARENT) != 0) {
+                    ((SubTask) task).setParent(buffer.getLong(record + 36));
+                }
+            }
+            default -> {
+            }
+        }
+        return task;
+    }
+
+    private static int putString(ByteBuffer buffer, int offset, byte[] bytes) {
+        if (bytes == null) {
+            return NULL_REF;
+        }
+        buffer.putInt(offset, bytes.length);
+        buffer.put(offset + Integer.BYTES, bytes);
+        return offset;
+    }
+
+    private static String getString(ByteBuffer buffer, int offset) {
+        if (offset == NULL_REF) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? Integer.BYTES + bytes.length : 0;
+    }
+
+    private static class Layout {
+        public final int headerSize;
+        public final int taskCount;
+        public final int linkCount;
+        public final int historyCount;
+        public final int linksOffset;
+        public final int historyOffset;
+        public final int stringsOffset;
+
+        public Layout(int headerSize, int taskCount, int linkCount, int historyCount) {
+            this.headerSize = headerSize;
+            this.taskCount = taskCount;
+            this.linkCount = linkCount;
+            this.historyCount = historyCount;
+            linksOffset = Math.toIntExact(headerSize + (long) taskCount * RECORD_SIZE);
+            historyOffset = Math.toIntExact(linksOffset + (long) linkCount * Long.BYTES);
+            stringsOffset = Math.toIntExact(historyOffset + (long) historyCount * Long.BYTES);
+        }
+
+        public int recordOffset(int index) {
+            return headerSize + index * RECORD_SIZE;
+        }
+    }
+}
@@ -94,6 +94,27 @@ public class MySimpleLinkedHashMap {
         return tasks;
     }
 
+    /**
+     * Up to {@code limit} values that follow the one with the given id, or from the head if
+     * the id is null. Returns null if the id is not in the map.
+     */
+    public List<Task> getValues(Long afterId, int limit) {
+        Node next = head;
+        if (afterId != null) {
+            Node after = taskIdToNode.get(afterId);
+            if (after == null) {
+                return null;
+            }
+            next = after.next;
+        }
+        List<Task> tasks = new ArrayList<>(Math.min(limit, taskIdToNode.size()));
+        while (next != null && tasks.size() < limit) {
+            tasks.add(next.value);
+            next = next.next;
+        }
+        return tasks;
+    }
+
     public void clear() {
         taskIdToNode.clear();
         head = null;
@@ -0,0 +1,17 @@
+package tracker;
+
+import java.util.List;
+
+/**
+ * One page of a listing. {@code nextCursor} is passed back to get the page that follows and is
+ * null on the last page.
+ */
+public class Page<T> {
+    public final List<T> items;
+    public final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
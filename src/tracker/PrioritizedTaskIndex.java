@@ -0,0 +1,124 @@
+package tracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import task.Task;
+
+/**
+ * Tasks with a start time ordered by (start minute, id). Every entry remembers the key it
+ * was inserted with, so it can be found again by id even if the task was changed since.
+ * The id breaks ties, so tasks starting in the same minute never replace each other.
+ * <p>
+ * Pages are read from a tail set of the tree, so a page costs O(log n + limit). A cursor
+ * is the key of the last entry of the previous page, {@code <start minute>:<id>}; it stays
+ * valid when that task changes or goes away.
+ */
+public class PrioritizedTaskIndex {
+    private final TreeSet<Entry> entries;
+    private final HashMap<Long, Entry> entriesById;
+
+    PrioritizedTaskIndex() {
+        entries = new TreeSet<>();
+        entriesById = new HashMap<>();
+    }
+
+    void put(Task task) {
+        remove(task.getId());
+        if (task.getStartMinute() == Task.NO_TIME) {
+            return;
+        }
+        Entry entry = new Entry(task);
+        entries.add(entry);
+        entriesById.put(entry.id, entry);
+    }
+
+    void remove(Long id) {
+        Entry entry = entriesById.remove(id);
+        if (entry != null) {
+            entries.remove(entry);
+        }
+    }
+
+    boolean contains(Long id) {
+        return entriesById.containsKey(id);
+    }
+
+    void clear() {
+        entries.clear();
+        entriesById.clear();
+    }
+
+    public List<Task> getValues() {
+        List<Task> tasks = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            tasks.add(entry.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Up to {@code limit} tasks starting in [{@code fromMinute}, {@code toMinute}) that follow
+     * the cursor, or from the start of the range if the cursor is null.
+     */
+    public Page<Task> getPage(long fromMinute, long toMinute, String cursor, int limit) {
+        NavigableSet<Entry> tail = cursor != null
+                ? entries.tailSet(parseCursor(cursor), false)
+                : entries.tailSet(new Entry(fromMinute, Long.MIN_VALUE), true);
+        List<Task> tasks = new ArrayList<>(Math.min(limit, entries.size()));
+        Entry last = null;
+        for (Entry entry : tail) {
+            if (entry.startMinute >= toMinute) {
+                break;
+            }
+            if (entry.startMinute < fromMinute) {
+                continue;
+            }
+            if (tasks.size() == limit) {
+                return new Page<>(tasks, last.startMinute + ":" + last.id);
+            }
+            tasks.add(entry.task);
+            last = entry;
+        }
+        return new Page<>(tasks, null);
+    }
+
+    private static Entry parseCursor(String cursor) {
+        int separator = cursor.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new Entry(Long.parseLong(cursor.substring(0, separator)),
+                Long.parseLong(cursor.substring(separator + 1)));
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        public final Task task;
+        public final long startMinute;
+        public final long id;
+
+        public Entry(Task task) {
+            this.task = task;
+            this.startMinute = task.getStartMinute();
+            this.id = task.getId();
+        }
+
+        /**
+         * Search key without a task.
+         */
+        public Entry(long startMinute, long id) {
+            this.task = null;
+            this.startMinute = startMinute;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Long.compare(startMinute, other.startMinute);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+}
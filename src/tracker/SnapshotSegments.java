@@ -0,0 +1,208 @@
+package tracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import task.Task;
+
+/**
+ * Incremental snapshots: a base snapshot plus numbered delta segments
+ * {@code <file>.<n>.delta}, each holding only the tasks changed or removed since the
+ * previous one. Loading applies the segments to the base in order. Once
+ * {@code mergeThreshold} segments pile up, a background thread folds them into a new base
+ * and deletes them, so a checkpoint costs as much as the churn since the last one.
+ * <p>
+ * Segments are deleted oldest first after the merged base has been renamed into place. A
+ * crash in between leaves a suffix of already merged segments, and applying them again
+ * yields the same state, because every segment sets whole tasks rather than changing them.
+ */
+public class SnapshotSegments implements AutoCloseable {
+    private static final String SUFFIX = ".delta";
+
+    private final File base;
+    private final StorageFormat format;
+    private final int mergeThreshold;
+    private final ExecutorService merger;
+    private final Object baseLock = new Object();
+    private long nextSegment;
+    private int pendingSegments;
+    private volatile RuntimeException mergeFailure;
+
+    SnapshotSegments(File base, StorageFormat format, int mergeThreshold) {
+        this.base = base;
+        this.format = format;
+        this.mergeThreshold = Math.max(1, mergeThreshold);
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-merge-" + base.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<File> segments = list(base);
+        nextSegment = segments.isEmpty() ? 1 : number(segments.get(segments.size() - 1)) + 1;
+        pendingSegments = segments.size();
+    }
+
+    /**
+     * Applies every segment of {@code base} to the given base snapshot.
+     */
+    static TaskSnapshot applySegments(File base, TaskSnapshot snapshot) {
+        return apply(snapshot, list(base));
+    }
+
+    /**
+     * Deletes every segment of {@code base}; called after a full snapshot replaced it.
+     */
+    static void deleteSegments(File base) {
+        for (File segment : list(base)) {
+            delete(segment);
+        }
+    }
+
+    /**
+     * Writes a full base snapshot and drops all segments.
+     */
+    void writeFull(TaskSnapshot snapshot) {
+        synchronized (baseLock) {
+            writeBase(snapshot);
+            deleteSegments(base);
+        }
+        synchronized (this) {
+            pendingSegments = 0;
+        }
+    }
+
+    /**
+     * Writes the next segment and starts a background merge once enough segments exist.
+     */
+    void writeDelta(TaskSnapshot delta) {
+        long number;
+        synchronized (this) {
+            number = nextSegment++;
+        }
+        delta.writeDeltaTo(segmentFile(number));
+        synchronized (this) {
+            if (++pendingSegments < mergeThreshold) {
+                return;
+            }
+            pendingSegments = 0;
+        }
+        merger.execute(() -> merge(number));
+    }
+
+    /**
+     * Waits for running merges to finish.
+     */
+    @Override
+    public void close() {
+        merger.shutdown();
+        try {
+            if (!merger.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new ManagerSaveException(new IOException("Snapshot merge did not finish in time."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (mergeFailure != null) {
+            throw mergeFailure;
+        }
+    }
+
+    /**
+     * Runs under the base lock only, so segments keep being written while a merge runs.
+     * A failed merge leaves its segments in place and is reported by {@link #close()}.
+     */
+    private void merge(long upTo) {
+        try {
+            mergeSegments(upTo);
+        } catch (RuntimeException e) {
+            mergeFailure = e;
+        }
+    }
+
+    private void mergeSegments(long upTo) {
+        synchronized (baseLock) {
+            if (!base.exists()) {
+                return;
+            }
+            List<File> segments = list(base).stream().filter(segment -> number(segment) <= upTo).toList();
+            if (segments.isEmpty()) {
+                return;
+            }
+            TaskSnapshot merged = apply(readBase(), segments);
+            writeBase(merged);
+            segments.forEach(SnapshotSegments::delete);
+        }
+    }
+
+    private static TaskSnapshot apply(TaskSnapshot snapshot, List<File> segments) {
+        if (segments.isEmpty()) {
+            return snapshot;
+        }
+        LinkedHashMap<Long, Task> tasks = new LinkedHashMap<>();
+        snapshot.tasks.forEach(task -> tasks.put(task.getId(), task));
+        for (File segment : segments) {
+            TaskSnapshot delta = TaskSnapshot.readFrom(segment);
+            delta.removed.forEach(tasks::remove);
+            delta.tasks.forEach(task -> tasks.put(task.getId(), task));
+            snapshot.idWatermark = Math.max(snapshot.idWatermark, delta.idWatermark);
+            snapshot.logSequence = Math.max(snapshot.logSequence, delta.logSequence);
+            snapshot.history = delta.history;
+        }
+        snapshot.tasks = new ArrayList<>(tasks.values());
+        return snapshot;
+    }
+
+    private TaskSnapshot readBase() {
+        return MappedTaskSnapshot.isSnapshot(base) ? MappedTaskSnapshot.readFrom(base) : TaskSnapshot.readFrom(base);
+    }
+
+    private void writeBase(TaskSnapshot snapshot) {
+        switch (format) {
+            case STREAM -> snapshot.writeTo(base);
+            case MAPPED -> MappedTaskSnapshot.writeTo(snapshot, base);
+        }
+    }
+
+    private File segmentFile(long number) {
+        return new File(base.getPath() + "." + number + SUFFIX);
+    }
+
+    private static List<File> list(File base) {
+        File directory = base.getAbsoluteFile().getParentFile();
+        String prefix = base.getName() + ".";
+        File[] files = directory.listFiles((dir, name) -> name.length() > prefix.length() + SUFFIX.length()
+                && name.startsWith(prefix) && name.endsWith(SUFFIX)
+                && isNumber(name.substring(prefix.length(), name.length() - SUFFIX.length())));
+        if (files == null) {
+            return List.of();
+        }
+        return Arrays.stream(files).sorted(Comparator.comparingLong(SnapshotSegments::number)).toList();
+    }
+
+    private static long number(File segment) {
+        String name = segment.getName();
+        String withoutSuffix = name.substring(0, name.length() - SUFFIX.length());
+        return Long.parseLong(withoutSuffix.substring(withoutSuffix.lastIndexOf('.') + 1));
+    }
+
+    private static boolean isNumber(String value) {
+        return !value.isEmpty() && value.chars().allMatch(Character::isDigit);
+    }
+
+    private static void delete(File segment) {
+        try {
+            Files.deleteIfExists(segment.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package tracker;
+
+/**
+ * Layout of the file written by {@link FileBackedTaskManager}. Loading detects the layout
+ * of an existing file by itself, so switching formats only changes how the next save writes.
+ */
+public enum StorageFormat {
+    /**
+     * {@link TaskSnapshot}: a sequential binary stream.
+     */
+    STREAM,
+    /**
+     * {@link MappedTaskSnapshot}: fixed-size records that point into regions of
+     * subtask ids, history and strings, read with absolute gets.
+     */
+    MAPPED
+}
@@ -0,0 +1,77 @@
+package tracker;
+
+/**
+ * Settings of {@link FileBackedTaskManager}. By default the manager keeps the old behaviour
+ * and writes its file on {@code close()} only.
+ */
+public class StorageOptions {
+    /**
+     * Append every mutation to {@code <file>.wal} so nothing is lost since the last snapshot.
+     */
+    public boolean writeAheadLog = false;
+    /**
+     * Number of log records written between two fsync calls; 1 syncs every mutation.
+     */
+    public int fsyncBatchSize = 1;
+    /**
+     * Number of log records after which a snapshot is written and the log is truncated. The
+     * mutation that reaches it writes the snapshot itself, unless {@link #groupCommit} hands
+     * it to the writer thread.
+     */
+    public int compactionThreshold = 10_000;
+    /**
+     * Write log records on a background thread in group commits, see {@link GroupCommitLog}.
+     * Mutations no longer wait for the disk, so the last {@code groupCommitDelayMillis} of
+     * changes can be lost on a crash. Only used together with {@link #writeAheadLog}.
+     */
+    public boolean groupCommit = false;
+    /**
+     * Maximum number of records written with one fsync.
+     */
+    public int groupCommitSize = 256;
+    /**
+     * How long the writer waits for more records after the first one of a group.
+     */
+    public long groupCommitDelayMillis = 5;
+    /**
+     * Records that may wait for the writer before appends start to block.
+     */
+    public int groupCommitQueueCapacity = 4096;
+    /**
+     * Make checkpoints write only the tasks changed since the previous one as a delta
+     * segment, see {@link SnapshotSegments}.
+     */
+    public boolean incrementalSnapshots = false;
+    /**
+     * Number of delta segments after which they are merged into the base snapshot.
+     */
+    public int segmentMergeThreshold = 8;
+    /**
+     * Layout used when a snapshot is saved.
+     */
+    public StorageFormat format = StorageFormat.STREAM;
+
+    public static StorageOptions withWriteAheadLog() {
+        StorageOptions options = new StorageOptions();
+        options.writeAheadLog = true;
+        return options;
+    }
+
+    public static StorageOptions withGroupCommit() {
+        StorageOptions options = withWriteAheadLog();
+        options.groupCommit = true;
+        return options;
+    }
+
+    public static StorageOptions withIncrementalSnapshots() {
+        StorageOptions options = new StorageOptions();
+        options.incrementalSnapshots = true;
+        return options;
+    }
+
+    public static StorageOptions withFormat(StorageFormat format) {
+        StorageOptions options = new StorageOptions();
+        options.format = format;
+        return options;
+    }
+}
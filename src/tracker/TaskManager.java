@@ -1,5 +1,6 @@
 package tracker;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import task.EStatus;
@@ -14,8 +15,16 @@ public interface TaskManager extends AutoCloseable {
     Long addTask(Task task);
 
     // Read
+    /**
+     * User view of a task: the lookup is recorded in the browsing history.
+     */
     Task findTaskById(Long id);
 
+    /**
+     * Same lookup as {@link #findTaskById(Long)} without recording it in the history.
+     */
+    Task peekTaskById(Long id);
+
     EpicTask findEpicTask(Long id);
 
     SimpleTask findSimpleTask(Long id);
@@ -28,11 +37,35 @@ public interface TaskManager extends AutoCloseable {
 
     List<? extends Task> getAllTasksByType(TaskType type);
 
+    /**
+     * Up to {@code limit} tasks of the type in ascending id order, following the cursor of the
+     * previous page or from the first task if it is null.
+     */
+    Page<? extends Task> getTasksPage(TaskType type, String cursor, int limit);
+
+    /**
+     * Grows with every change to the listing of the type. Epics also change with the status and
+     * times of their subtasks.
+     */
+    long getVersion(TaskType type);
+
+    /**
+     * Grows with every change to a task that is or was in {@link #getPrioritizedTasks()}.
+     */
+    long getPrioritizedVersion();
+
     // Update
     void updateTask(Task task);
 
     void updateStatus(Long id, EStatus status);
 
+    /**
+     * Applies the operations in order and returns one result per operation. All of them are
+     * validated first; in {@link BatchMode#ATOMIC} mode nothing is applied unless every one is
+     * valid, in {@link BatchMode#BEST_EFFORT} mode the invalid ones are skipped.
+     */
+    List<BatchResult> applyBatch(List<BatchOperation> operations, BatchMode mode);
+
     // Remove
     void removeTask(Long id);
 
@@ -44,6 +77,12 @@ public interface TaskManager extends AutoCloseable {
 
     List<Task> getHistory();
 
+    /**
+     * Page of the history, oldest first. A cursor stops being valid once its task leaves the
+     * history.
+     */
+    Page<Task> getHistoryPage(String cursor, int limit);
+
     String getHistoryAsString();
 
     List<SubTask> findTasksByParentId(EpicTask task);
@@ -55,4 +94,10 @@ public interface TaskManager extends AutoCloseable {
     Task fromDto(TaskDTO dto);
 
     List<Task> getPrioritizedTasks();
+
+    /**
+     * Page of the prioritized view restricted to tasks starting in [{@code from}, {@code to});
+     * a null bound leaves that side open.
+     */
+    Page<Task> getPrioritizedPage(LocalDateTime from, LocalDateTime to, String cursor, int limit);
 }
@@ -0,0 +1,311 @@
+package tracker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import task.EStatus;
+import task.EpicTask;
+import task.SimpleTask;
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+
+/**
+ * Full state of a manager: every task with its epic/subtask links, the id generator
+ * watermark and the history order.
+ * <p>
+ * Binary layout, big-endian: magic, format version, watermark, since version 3 the log
+ * sequence, task count, tasks, history size, history ids, and since version 2 a CRC32 of
+ * everything before it.
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes, so names and
+ * descriptions may contain any character.
+ * <p>
+ * A delta segment (see {@link SnapshotSegments}) has the same layout with its own magic and
+ * the ids of removed tasks after the history; its task list holds only changed tasks.
+ * <p>
+ * A snapshot is written to a temporary file next to the target, fsynced and then renamed
+ * over the target, so a crash leaves either the old or the new snapshot, never a mix.
+ */
+public class TaskSnapshot {
+    static final int MAGIC = 0x4B414E42;
+    static final int DELTA_MAGIC = 0x4B414E44;
+    static final int VERSION = 3;
+
+    public long idWatermark;
+    /**
+     * Number of the last write-ahead log record whose effect the snapshot contains; records
+     * up to it are skipped on replay.
+     */
+    public long logSequence;
+    public List<Task> tasks = new ArrayList<>();
+    public List<Long> history = new ArrayList<>();
+    public List<Long> removed = new ArrayList<>();
+
+    public static boolean isSnapshot(File file) {
+        if (file.length() < Integer.BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e);
+        }
+    }
+
+    public static TaskSnapshot readFrom(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != DELTA_MAGIC) {
+                throw new IOException("File " + file.getPath() + " is not a task snapshot.");
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            if (version > 1) {
+                verifyChecksum(file);
+            }
+            TaskSnapshot snapshot = new TaskSnapshot();
+            snapshot.idWatermark = in.readLong();
+            if (version > 2) {
+                snapshot.logSequence = in.readLong();
+            }
+            int count = in.readInt();
+            snapshot.tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                snapshot.tasks.add(readTask(in));
+            }
+            int historySize = in.readInt();
+            snapshot.history = new ArrayList<>(historySize);
+            for (int i = 0; i < historySize; i++) {
+                snapshot.history.add(in.readLong());
+            }
+            if (magic == DELTA_MAGIC) {
+                int removedSize = in.readInt();
+                snapshot.removed = new ArrayList<>(removedSize);
+                for (int i = 0; i < removedSize; i++) {
+                    snapshot.removed.add(in.readLong());
+                }
+            }
+            return snapshot;
+        } catch (IOException e) {
+            throw new ManagerLoadException(e);
+        }
+    }
+
+    /**
+     * Checks the footer before anything is parsed, so a damaged length field can not make
+     * the reader allocate garbage-sized arrays.
+     */
+    private static void verifyChecksum(File file) throws IOException {
+        long length = file.length() - Long.BYTES;
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file)), checksum))) {
+            byte[] block = new byte[8192];
+            for (long left = length; left > 0; ) {
+                int read = in.read(block, 0, (int) Math.min(block.length, left));
+                if (read < 0) {
+                    throw new IOException("Snapshot " + file.getPath() + " is truncated.");
+                }
+                left -= read;
+            }
+            long expected = checksum.getValue();
+            if (length < 0 || in.readLong() != expected) {
+                throw new IOException("Snapshot " + file.getPath() + " is corrupted: checksum mismatch.");
+            }
+        }
+    }
+
+    public void writeTo(File file) {
+        write(file, MAGIC);
+    }
+
+    public void writeDeltaTo(File file) {
+        write(file, DELTA_MAGIC);
+    }
+
+    private void write(File file, int magic) {
+        File temp = tempFileFor(file);
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream stream = new FileOutputStream(temp, false);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(stream), checksum))) {
+            out.writeInt(magic);
+            out.writeInt(VERSION);
+            out.writeLong(idWatermark);
+            out.writeLong(logSequence);
+            out.writeInt(tasks.size());
+            for (Task task : tasks) {
+                writeTask(out, task);
+            }
+            out.writeInt(history.size());
+            for (Long id : history) {
+                out.writeLong(id);
+            }
+            if (magic == DELTA_MAGIC) {
+                out.writeInt(removed.size());
+                for (Long id : removed) {
+                    out.writeLong(id);
+                }
+            }
+            out.writeLong(checksum.getValue());
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+        replace(temp, file);
+    }
+
+    static File tempFileFor(File file) {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * Renames a fully written and synced temporary file over the target and syncs the
+     * directory, so the rename itself survives a crash.
+     */
+    static void replace(File temp, File target) {
+        try {
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+        Path directory = target.getAbsoluteFile().toPath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Not every platform can open or sync a directory; the rename is still atomic.
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        out.writeByte(task.getType().ordinal());
+        out.writeLong(task.getId());
+        writeString(out, task.getName());
+        writeString(out, task.getDescription());
+        out.writeByte(task.getStatus() != null ? task.getStatus().ordinal() : -1);
+        writeTime(out, task.getStartTime());
+        out.writeBoolean(task.getDuration() != null);
+        if (task.getDuration() != null) {
+            out.writeLong(task.getDuration().getSeconds());
+        }
+        switch (task.getType()) {
+            case EPIC -> {
+                EpicTask epic = (EpicTask) task;
+                writeTime(out, epic.getEndTime());
+                out.writeInt(epic.getSubTasksCount());
+                for (Long sid : epic.getSubTasksIds()) {
+                    out.writeLong(sid);
+                }
+            }
+            case SUB -> {
+                Long parent = ((SubTask) task).getParent();
+                out.writeBoolean(parent != null);
+                if (parent != null) {
+                    out.writeLong(parent);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static Task readTask(DataInputStream in) throws IOException {
+        TaskType type = TaskType.values()[in.readByte()];
+        long id = in.readLong();
+        String name = readString(in);
+        String description = readString(in);
+        Task task = switch (type) {
+            case TASK -> new SimpleTask(name, description);
+            case EPIC -> new EpicTask(name, description);
+            case SUB -> new SubTask(name, description);
+        };
+        task.setId(id);
+        byte status = in.readByte();
+        task.setStatus(status >= 0 ? EStatus.values()[status] : null);
+        LocalDateTime startTime = readTime(in);
+        if (startTime != null) {
+            task.setStartTime(startTime);
+        }
+        if (in.readBoolean()) {
+            task.setDuration(Duration.ofSeconds(in.readLong()));
+        }
+        switch (type) {
+            case EPIC -> {
+                EpicTask epic = (EpicTask) task;
+                epic.setEndTime(readTime(in));
+                long[] ids = new long[in.readInt()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = in.readLong();
+                }
+                epic.setSubTasksIds(ids);
+            }
+            case SUB -> {
+                if (in.readBoolean()) {
+                    ((SubTask) task).setParent(in.readLong());
+                }
+            }
+            default -> {
+            }
+        }
+        return task;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        }
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
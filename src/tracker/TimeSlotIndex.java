@@ -0,0 +1,135 @@
+package tracker;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import task.Task;
+import task.TaskType;
+
+/**
+ * Busy [start, end) intervals of scheduled tasks ordered by start time.
+ * Stored slots never intersect each other, so an overlap check only has to look
+ * at the nearest slot on each side of the candidate start time.
+ * Epic tasks are not indexed: their interval is derived from their subtasks.
+ */
+public class TimeSlotIndex {
+    private final TreeMap<LocalDateTime, Slot> slotsByStart;
+    private final HashMap<Long, Slot> slotsById;
+
+    TimeSlotIndex() {
+        slotsByStart = new TreeMap<>();
+        slotsById = new HashMap<>();
+    }
+
+    boolean overlaps(Task task) {
+        return overlaps(task, Set.of());
+    }
+
+    /**
+     * Same check as {@link #overlaps(Task)} that also passes over the slots of the ignored
+     * ids, e.g. tasks an earlier operation of a batch moves or removes.
+     */
+    boolean overlaps(Task task, Set<Long> ignored) {
+        if (!isSchedulable(task)) {
+            return false;
+        }
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = endOf(task);
+        Long id = task.getId();
+
+        Map.Entry<LocalDateTime, Slot> before = slotsByStart.floorEntry(start);
+        while (before != null && before.getValue().isSkipped(id, ignored)) {
+            before = slotsByStart.lowerEntry(before.getKey());
+        }
+        if (before != null && (before.getKey().isEqual(start) || before.getValue().end.isAfter(start))) {
+            return true;
+        }
+
+        Map.Entry<LocalDateTime, Slot> after = slotsByStart.higherEntry(start);
+        while (after != null && after.getValue().isSkipped(id, ignored)) {
+            after = slotsByStart.higherEntry(after.getKey());
+        }
+        return after != null && end.isAfter(after.getKey());
+    }
+
+    /**
+     * Checks a group of new tasks at once: one sort and sweep finds intersections between
+     * the tasks of the group, and every task is also checked against the stored slots.
+     */
+    boolean overlapsAny(Collection<? extends Task> candidates) {
+        List<? extends Task> scheduled = candidates.stream()
+                .filter(TimeSlotIndex::isSchedulable)
+                .sorted(Comparator.comparing(Task::getStartTime))
+                .toList();
+        LocalDateTime lastStart = null;
+        LocalDateTime lastEnd = null;
+        for (Task task : scheduled) {
+            LocalDateTime start = task.getStartTime();
+            if (lastStart != null && (lastStart.isEqual(start) || lastEnd.isAfter(start))) {
+                return true;
+            }
+            if (overlaps(task)) {
+                return true;
+            }
+            lastStart = start;
+            LocalDateTime end = endOf(task);
+            if (lastEnd == null || end.isAfter(lastEnd)) {
+                lastEnd = end;
+            }
+        }
+        return false;
+    }
+
+    void add(Task task) {
+        remove(task.getId());
+        if (!isSchedulable(task)) {
+            return;
+        }
+        Slot slot = new Slot(task.getId(), task.getStartTime(), endOf(task));
+        slotsByStart.put(slot.start, slot);
+        slotsById.put(slot.id, slot);
+    }
+
+    void remove(Long id) {
+        Slot slot = slotsById.remove(id);
+        if (slot != null) {
+            slotsByStart.remove(slot.start);
+        }
+    }
+
+    void clear() {
+        slotsByStart.clear();
+        slotsById.clear();
+    }
+
+    private static boolean isSchedulable(Task task) {
+        return task.getStartTime() != null && task.getType() != TaskType.EPIC;
+    }
+
+    private static LocalDateTime endOf(Task task) {
+        LocalDateTime end = task.getEndTime();
+        return end != null ? end : task.getStartTime();
+    }
+
+    private static class Slot {
+        public final Long id;
+        public final LocalDateTime start;
+        public final LocalDateTime end;
+
+        public Slot(Long id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+
+        public boolean isSkipped(Long taskId, Set<Long> ignored) {
+            return id.equals(taskId) || ignored.contains(id);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package tracker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -9,10 +11,11 @@ import java.util.List;
 import task.EStatus;
 import task.SubTask;
 import task.Task;
+import task.TaskTime;
 import task.TaskType;
 
 public class TrackerUtilities {
-    public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    public static final DateTimeFormatter DATE_TIME_FORMAT = TaskTime.FORMAT;
     public static String csvDelimiter = ",";
 
     public static TaskDTO fromCsvToTaskDTO(String value) throws NumberFormatException {
@@ -35,6 +38,44 @@ public class TrackerUtilities {
         return taskDTO;
     }
 
+    /**
+     * Reads a row written by {@link CsvTaskWriter#appendEscapedTask(Appendable, Task)}.
+     */
+    public static TaskDTO fromEscapedCsvToTaskDTO(String value) throws NumberFormatException {
+        TaskDTO taskDTO = fromCsvToTaskDTO(value);
+        taskDTO.name = unescape(taskDTO.name);
+        taskDTO.description = unescape(taskDTO.description);
+        return taskDTO;
+    }
+
+    /**
+     * Reverts {@link CsvTaskWriter#appendEscaped(Appendable, String)}.
+     */
+    public static String unescape(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length()) {
+                String code = value.substring(i + 1, i + 3);
+                switch (code) {
+                    case "25" -> c = '%';
+                    case "2C" -> c = ',';
+                    case "0A" -> c = '\n';
+                    case "0D" -> c = '\r';
+                    default -> code = null;
+                }
+                if (code != null) {
+                    i += 2;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
     public static String[] mySplit(String value, String csvDelimiter) {
         int from = 0;
         List<String> values = new ArrayList<>();
@@ -52,24 +93,13 @@ public class TrackerUtilities {
     }
 
     public static String fromTaskDtoToCsv(Task task) {
-        TaskDTO dto = toDto(task);
-        String id = dto.id.toString();
-        String type = dto.type.toString();
-        String status = dto.status.toString();
-        String startTimeString = dto.startTime != null ? dto.startTime.format(DATE_TIME_FORMAT) : "";
-        String endTimeString = dto.endTime != null ? dto.endTime.format(DATE_TIME_FORMAT) : "";
-        String durationInMinutes = dto.duration != null ? Long.toString(dto.duration.toMinutes()) : "";
-        String parentId = dto.parent != null ? dto.parent.toString() : "";
-        return String.join(csvDelimiter,
-                id,
-                type,
-                dto.name,
-                status,
-                dto.description,
-                startTimeString,
-                endTimeString,
-                durationInMinutes,
-                parentId);
+        StringBuilder sb = new StringBuilder(64);
+        try {
+            CsvTaskWriter.appendTask(sb, task);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
     }
 
     public static TaskDTO toDto(Task task) {
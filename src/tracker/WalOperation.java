@@ -0,0 +1,14 @@
+package tracker;
+
+public enum WalOperation {
+    ADD,
+    UPDATE,
+    STATUS,
+    LINK,
+    REMOVE,
+    REMOVE_RECURSIVE,
+    REMOVE_TYPE,
+    REMOVE_ALL,
+    BATCH,
+    SEQUENCE
+}
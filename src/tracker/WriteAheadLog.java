@@ -0,0 +1,141 @@
+package tracker;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only text log with one record per line. Records are flushed and fsynced every
+ * {@code fsyncBatchSize} appends. A record that was cut off by a crash has no trailing line
+ * break and is skipped on read.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private final File file;
+    private final int fsyncBatchSize;
+    private FileOutputStream stream;
+    private Writer writer;
+    private int unsynced;
+    private int records;
+
+    WriteAheadLog(File file, int fsyncBatchSize) {
+        this.file = file;
+        this.fsyncBatchSize = Math.max(1, fsyncBatchSize);
+        open(true);
+    }
+
+    static List<String> readRecords(File file) {
+        List<String> records = new ArrayList<>();
+        if (!file.exists() || file.length() == 0) {
+            return records;
+        }
+        try (FileReader fr = new FileReader(file, StandardCharsets.UTF_8); BufferedReader br = new BufferedReader(fr)) {
+            String line = br.readLine();
+            while (line != null) {
+                records.add(line);
+                line = br.readLine();
+            }
+            if (!endsWithLineBreak(file)) {
+                records.remove(records.size() - 1);
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException(e);
+        }
+        return records;
+    }
+
+    /**
+     * Lets the record be written straight into the buffered writer, so large records such as
+     * task rows are never built as a separate string.
+     */
+    void append(Record record) {
+        try {
+            record.writeTo(writer);
+            writer.write('\n');
+            records++;
+            if (++unsynced >= fsyncBatchSize) {
+                flushAndSync();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+    }
+
+    void sync() {
+        flushAndSync();
+    }
+
+    int size() {
+        return records;
+    }
+
+    /**
+     * Empties the log and writes the header as its first record; the header is not counted
+     * by {@link #size()}.
+     */
+    void truncate(Record header) {
+        closeWriter();
+        open(false);
+        records = 0;
+        try {
+            header.writeTo(writer);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+        flushAndSync();
+    }
+
+    @Override
+    public void close() {
+        closeWriter();
+    }
+
+    private void flushAndSync() {
+        try {
+            writer.flush();
+            stream.getFD().sync();
+            unsynced = 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+    }
+
+    private void closeWriter() {
+        try {
+            flushAndSync();
+            writer.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+    }
+
+    private void open(boolean append) {
+        try {
+            stream = new FileOutputStream(file, append);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            unsynced = 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException(e);
+        }
+    }
+
+    private static boolean endsWithLineBreak(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    interface Record {
+        void writeTo(Writer out) throws IOException;
+    }
+}
@@ -1,14 +1,19 @@
 package api;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+import api.adapters.BatchResultListTypeToken;
 import api.adapters.EpicTaskListTypeToken;
 import api.adapters.SimpleTaskListTypeToken;
 import api.adapters.SubTaskListTypeToken;
@@ -20,6 +25,7 @@ import task.SimpleTask;
 import task.SubTask;
 import task.Task;
 import task.TaskType;
+import tracker.BatchResult;
 import tracker.Managers;
 import tracker.TaskManager;
 import utilities.TaskTestUtilities;
@@ -211,6 +217,112 @@ class HttpTaskServerTest {
         }
     }
 
+    @Test
+    public void shouldPrettyPrintOnlyOnRequest() throws Exception {
+        TaskManager manager = Managers.getDefault();
+        SimpleTask task = createRandomSimpleTask();
+        Long id = manager.addTask(task);
+        try (HttpTaskServer ignored = new HttpTaskServer(manager)) {
+            HttpResponse<String> compact = getStringHttpResponse("/tasks");
+            HttpResponse<String> pretty = getStringHttpResponse("/tasks?pretty=true");
+            HttpResponse<String> single = getStringHttpResponse("/tasks/" + id);
+
+            Assertions.assertFalse(compact.body().contains("\n"));
+            Assertions.assertTrue(pretty.body().contains("\n"));
+            Assertions.assertEquals(gson.toJson(gson.fromJson(compact.body(), List.class)),
+                    gson.toJson(gson.fromJson(pretty.body(), List.class)));
+            Assertions.assertEquals(task, gson.fromJson(single.body(), SimpleTask.class));
+            Assertions.assertEquals(String.valueOf(single.body().getBytes(StandardCharsets.UTF_8).length),
+                    single.headers().firstValue("Content-Length").orElse(null));
+        }
+    }
+
+    @Test
+    public void shouldReturnTasksPageWithNextCursor() throws Exception {
+        TaskManager manager = Managers.getDefault();
+        for (int i = 0; i < 5; i++) {
+            manager.addTask(createRandomSimpleTask());
+        }
+        try (HttpTaskServer ignored = new HttpTaskServer(manager)) {
+            HttpResponse<String> first = getStringHttpResponse("/tasks?limit=3");
+            String cursor = first.headers().firstValue(HandlerUtilities.NEXT_CURSOR_HEADER).orElseThrow();
+            HttpResponse<String> second = getStringHttpResponse("/tasks?limit=3&cursor=" + cursor);
+
+            List<SimpleTask> firstPage = gson.fromJson(first.body(), new SimpleTaskListTypeToken().getType());
+            List<SimpleTask> secondPage = gson.fromJson(second.body(), new SimpleTaskListTypeToken().getType());
+            Assertions.assertEquals(3, firstPage.size());
+            Assertions.assertEquals(2, secondPage.size());
+            Assertions.assertTrue(second.headers().firstValue(HandlerUtilities.NEXT_CURSOR_HEADER).isEmpty());
+            Assertions.assertEquals(400, getStringHttpResponse("/tasks?limit=0").statusCode());
+        }
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedUntilTasksChange() throws Exception {
+        TaskManager manager = Managers.getDefault();
+        manager.addTask(createRandomSimpleTask());
+        try (HttpTaskServer ignored = new HttpTaskServer(manager)) {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> first = getStringHttpResponse("/tasks");
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+            HttpRequest conditional = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks"))
+                    .header("If-None-Match", etag)
+                    .GET()
+                    .timeout(Duration.ofSeconds(15))
+                    .build();
+
+            Assertions.assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+            manager.addTask(createRandomSimpleTask());
+            HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, changed.statusCode());
+            Assertions.assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        }
+    }
+
+    @Test
+    public void shouldServeUnchangedListingsFromCache() throws Exception {
+        TaskManager manager = Managers.getDefault();
+        manager.addTask(createRandomSimpleTask());
+        try (HttpTaskServer server = new HttpTaskServer(manager, ExecutorMode.DISPATCHER, 0, 0, 1 << 20)) {
+            HttpResponse<String> first = getStringHttpResponse("/tasks");
+            HttpResponse<String> second = getStringHttpResponse("/tasks");
+            Assertions.assertEquals(first.body(), second.body());
+            Assertions.assertEquals(1, server.getCache().getHits());
+
+            manager.addTask(createRandomSimpleTask());
+            List<SimpleTask> tasks = gson.fromJson(getStringHttpResponse("/tasks").body(),
+                    new SimpleTaskListTypeToken().getType());
+            Assertions.assertEquals(2, tasks.size());
+            Assertions.assertEquals(1, server.getCache().getHits());
+            Assertions.assertEquals(1, server.getCache().getEntries());
+        }
+    }
+
+    @Test
+    public void shouldApplyBatchOfOperations() throws Exception {
+        TaskManager manager = Managers.getDefault();
+        Long removed = manager.addTask(createRandomSimpleTask());
+        String body = "[" + "{\"action\": \"ADD\", \"task\": " + gson.toJson(createRandomSimpleTask()) + "},"
+                + "{\"action\": \"ADD\", \"task\": " + gson.toJson(createRandomEpicTask()) + "},"
+                + "{\"action\": \"REMOVE\", \"id\": " + removed + "},"
+                + "{\"action\": \"STATUS\", \"id\": 999, \"status\": \"DONE\"}]";
+
+        HttpResponse<String> atomic = postRequest(manager, body, "/batch");
+        Assertions.assertEquals(406, atomic.statusCode());
+        Assertions.assertEquals(1, manager.getAllTasks().size());
+
+        HttpResponse<String> bestEffort = postRequest(manager, body, "/batch?mode=best_effort");
+        List<BatchResult> results = gson.fromJson(bestEffort.body(), new BatchResultListTypeToken().getType());
+        Assertions.assertEquals(200, bestEffort.statusCode());
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertFalse(results.get(3).applied);
+        Assertions.assertEquals(2, manager.getAllTasks().size());
+        Assertions.assertNull(manager.peekTaskById(removed));
+
+        Assertions.assertEquals(400, postRequest(manager, "[{\"action\": ", "/batch").statusCode());
+    }
+
     @Test
     public void shouldDeleteTask() throws Exception {
         TaskManager manager = Managers.getDefault();
@@ -322,4 +434,86 @@ class HttpTaskServerTest {
         HttpResponse<String> response2 = postRequest(manager, taskJson2, path);
         Assertions.assertEquals(406, response2.statusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRejectFixedExecutorWithoutThreads() {
+        TaskManager manager = Managers.getConcurrentTaskManager();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(manager, ExecutorMode.FIXED, 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(manager, ExecutorMode.FIXED, -2, 0));
+    }
+
+    @Test
+    public void shouldRejectThreadPoolsForManagerThatIsNotThreadSafe() {
+        TaskManager manager = Managers.getDefault();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(manager, ExecutorMode.VIRTUAL, 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(manager, ExecutorMode.FIXED, 2, 0));
+    }
+
+    @Test
+    public void shouldServeOtherClientsWhileOneStallsOnFixedPool() throws Exception {
+        assertServedWhileOneClientStalls(ExecutorMode.FIXED, 2);
+    }
+
+    @Test
+    public void shouldAnswer503WhenFixedPoolQueueIsFull() throws Exception {
+        TaskManager manager = Managers.getConcurrentTaskManager();
+        Long id = manager.addTask(createRandomSimpleTask());
+        List<Socket> queued = new ArrayList<>();
+        try (HttpTaskServer ignored = new HttpTaskServer(manager, ExecutorMode.FIXED, 1, 0);
+             Socket stalled = new Socket("localhost", 8080)) {
+            stall(stalled);
+            // 64 fill the queue of a one-thread pool; the rest cover requests served before the stall.
+            for (int i = 0; i < 66; i++) {
+                Socket socket = new Socket("localhost", 8080);
+                queued.add(socket);
+                socket.getOutputStream().write(("GET /tasks/" + id + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+
+            HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks/" + id))
+                    .GET()
+                    .timeout(Duration.ofSeconds(5))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(503, response.statusCode());
+        } finally {
+            for (Socket socket : queued) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Sends the headers and the start of a body that never completes, so the handler of that
+     * exchange blocks reading it, and checks that other requests are answered meanwhile.
+     */
+    private static void assertServedWhileOneClientStalls(ExecutorMode mode, int threads) throws Exception {
+        TaskManager manager = Managers.getConcurrentTaskManager();
+        Long id = manager.addTask(createRandomSimpleTask());
+        try (HttpTaskServer ignored = new HttpTaskServer(manager, mode, threads, 0);
+             Socket stalled = new Socket("localhost", 8080)) {
+            stall(stalled);
+
+            HttpClient client = HttpClient.newHttpClient();
+            for (int i = 0; i < 20; i++) {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/tasks/" + id))
+                        .GET()
+                        .timeout(Duration.ofSeconds(5))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+                Assertions.assertEquals(200, response.statusCode());
+            }
+        }
+    }
+
+    private static void stall(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(("POST /tasks HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: 1000\r\n\r\n{\"name\": ").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
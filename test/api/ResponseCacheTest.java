@@ -0,0 +1,55 @@
+package api;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ResponseCacheTest {
+
+    private static ResponseCache.Entry entry(String view, long version, int size) {
+        return new ResponseCache.Entry(view, version, new byte[size], null);
+    }
+
+    @Test
+    public void shouldHitOnlyTheCachedVersion() {
+        ResponseCache cache = new ResponseCache(1024);
+        cache.put("tasks?", entry("tasks", 3, 10));
+
+        Assertions.assertNotNull(cache.get("tasks?", 3));
+        Assertions.assertNull(cache.get("tasks?", 4));
+        Assertions.assertNull(cache.get("epics?", 3));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void shouldDropOlderVersionsOfTheSameView() {
+        ResponseCache cache = new ResponseCache(1024);
+        cache.put("tasks?", entry("tasks", 1, 10));
+        cache.put("tasks?limit=5", entry("tasks", 1, 10));
+        cache.put("epics?", entry("epics", 1, 10));
+
+        cache.put("tasks?limit=5", entry("tasks", 2, 10));
+        cache.put("tasks?", entry("tasks", 1, 10));
+
+        Assertions.assertEquals(2, cache.getEntries());
+        Assertions.assertEquals(20, cache.getBytes());
+        Assertions.assertNull(cache.get("tasks?", 1));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedOverBudget() {
+        ResponseCache cache = new ResponseCache(30);
+        cache.put("a?", entry("a", 1, 10));
+        cache.put("b?", entry("b", 1, 10));
+        cache.put("c?", entry("c", 1, 10));
+        cache.get("a?", 1);
+
+        cache.put("d?", entry("d", 1, 10));
+        cache.put("e?", entry("e", 1, 100));
+
+        Assertions.assertNotNull(cache.get("a?", 1));
+        Assertions.assertNull(cache.get("b?", 1));
+        Assertions.assertNull(cache.get("e?", 1));
+        Assertions.assertEquals(30, cache.getBytes());
+    }
+}
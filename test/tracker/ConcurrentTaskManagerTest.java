@@ -0,0 +1,107 @@
+package tracker;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import task.EStatus;
+import task.EpicTask;
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static utilities.TaskTestUtilities.createRandomEpicTask;
+import static utilities.TaskTestUtilities.createRandomSimpleTask;
+import static utilities.TaskTestUtilities.createRandomSubTask;
+
+class ConcurrentTaskManagerTest {
+    private static final int THREADS = 8;
+    private static final int TASKS_PER_THREAD = 500;
+
+    @Test
+    void shouldGiveUniqueIdsWhenAddFromManyThreads() throws Exception {
+        TaskManager manager = Managers.getConcurrentTaskManager();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < TASKS_PER_THREAD; i++) {
+                        Long id = manager.addTask(createRandomSimpleTask());
+                        manager.findTaskById(id);
+                        manager.getAllTasks();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        HashSet<Long> ids = new HashSet<>();
+        manager.getAllTasks().forEach(task -> ids.add(task.getId()));
+        assertEquals(THREADS * TASKS_PER_THREAD, ids.size());
+        assertEquals(THREADS * TASKS_PER_THREAD, manager.getHistory().size());
+    }
+
+    @Test
+    void shouldKeepEpicStatusConsistentWhenSubTasksChangeConcurrently() throws Exception {
+        TaskManager manager = Managers.getConcurrentTaskManager();
+        EpicTask epic = createRandomEpicTask();
+        Long eid = manager.addTask(epic);
+        List<Long> sids = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            SubTask subTask = createRandomSubTask();
+            sids.add(manager.addTask(subTask));
+        }
+        manager.addSubTasksToEpic(eid, sids.toArray(Long[]::new));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long sid : sids) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        manager.updateStatus(sid, EStatus.IN_PROGRESS);
+                        manager.findTasksByParentId(eid);
+                    }
+                    manager.updateStatus(sid, EStatus.DONE);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(EStatus.DONE, manager.peekTaskById(eid).getStatus());
+        assertEquals(THREADS, ((EpicTask) manager.peekTaskById(eid)).getSubTasksCount(EStatus.DONE));
+        assertEquals(THREADS + 1, manager.getAllTasks().stream().map(Task::getId).distinct().count());
+    }
+
+    @Test
+    void shouldReturnCopiesThatLaterWritesDoNotChange() {
+        TaskManager manager = Managers.getConcurrentTaskManager();
+        Long eid = manager.addTask(createRandomEpicTask());
+        SubTask subTask = createRandomSubTask();
+        subTask.setParent(eid);
+        Long sid = manager.addTask(subTask);
+        EpicTask listed = (EpicTask) manager.getAllTasksByType(TaskType.EPIC).get(0);
+        EpicTask found = (EpicTask) manager.findTaskById(eid);
+
+        manager.updateStatus(sid, EStatus.DONE);
+
+        assertEquals(EStatus.NEW, listed.getStatus());
+        assertEquals(EStatus.NEW, found.getStatus());
+        assertEquals(1, found.getSubTasksCount(EStatus.NEW));
+        assertEquals(EStatus.DONE, manager.peekTaskById(eid).getStatus());
+    }
+}
@@ -0,0 +1,94 @@
+package tracker;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import task.SubTask;
+import task.Task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utilities.TaskTestUtilities.addTime;
+import static utilities.TaskTestUtilities.createRandomEpicTask;
+import static utilities.TaskTestUtilities.createRandomSimpleTask;
+import static utilities.TaskTestUtilities.createRandomSubTask;
+import static utilities.TaskTestUtilities.withId;
+
+class CsvTaskReaderTest {
+    @Test
+    void shouldParseChunksLikeLineByLineParser() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            List<String> lines = new ArrayList<>();
+            LocalDateTime start = LocalDateTime.of(2024, 2, 29, 23, 45);
+            for (int i = 0; i < 500; i++) {
+                Task task = switch (i % 3) {
+                    case 0 -> createRandomSimpleTask();
+                    case 1 -> createRandomEpicTask();
+                    default -> createRandomSubTask();
+                };
+                withId(task, i);
+                if (i % 3 != 1) {
+                    addTime(task, start.plusMinutes(i * 7L), Duration.ofMinutes(i));
+                }
+                if (task instanceof SubTask subTask) {
+                    subTask.setParent(i - 1L);
+                }
+                task.setName("имя " + i);
+                lines.add(TrackerUtilities.fromTaskDtoToCsv(task));
+            }
+            Files.writeString(path, String.join("\r\n", lines), StandardCharsets.UTF_8);
+
+            List<TaskDTO> dtos = CsvTaskReader.read(path.toFile(), 256);
+
+            assertEquals(lines.size(), dtos.size());
+            for (int i = 0; i < lines.size(); i++) {
+                TaskDTO expected = TrackerUtilities.fromCsvToTaskDTO(lines.get(i));
+                TaskDTO actual = dtos.get(i);
+                assertEquals(expected.id, actual.id);
+                assertEquals(expected.type, actual.type);
+                assertEquals(expected.name, actual.name);
+                assertEquals(expected.status, actual.status);
+                assertEquals(expected.description, actual.description);
+                assertEquals(expected.startTime, actual.startTime);
+                assertEquals(expected.endTime, actual.endTime);
+                assertEquals(expected.duration, actual.duration);
+                assertEquals(expected.parent, actual.parent);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void shouldRejectMalformedLines() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            Files.writeString(path, "1,TASK,name,NEW,description,,,\n");
+            assertThrows(IllegalArgumentException.class, () -> CsvTaskReader.read(path.toFile()));
+
+            Files.writeString(path, "x1,TASK,name,NEW,description,,,,\n");
+            assertThrows(NumberFormatException.class, () -> CsvTaskReader.read(path.toFile()));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void shouldWriteRowsInLegacyColumns() {
+        SubTask subTask = (SubTask) withId(createRandomSubTask(), 12);
+        subTask.setName("name");
+        subTask.setDescription("description");
+        subTask.setParent(-3L);
+        addTime(subTask, LocalDateTime.of(2024, 3, 5, 7, 9), Duration.ofMinutes(1_500));
+
+        assertEquals("12,SUB,name,NEW,description,05.03.2024 07:09,06.03.2024 08:09,1500,-3",
+                TrackerUtilities.fromTaskDtoToCsv(subTask));
+    }
+}
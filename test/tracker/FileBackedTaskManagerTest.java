@@ -3,21 +3,31 @@ package tracker;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import task.EStatus;
 import task.EpicTask;
+import task.SimpleTask;
+import task.SubTask;
 import task.Task;
+import task.TaskType;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static utilities.TaskTestUtilities.addTime;
 import static utilities.TaskTestUtilities.createRandomEpicTask;
 import static utilities.TaskTestUtilities.createRandomSimpleTask;
+import static utilities.TaskTestUtilities.createRandomSubTask;
 import static utilities.TaskTestUtilities.withId;
 
 class FileBackedTaskManagerTest {
@@ -103,4 +113,457 @@ class FileBackedTaskManagerTest {
             Files.deleteIfExists(path);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRecoverFromWriteAheadLogWithoutClose() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            LocalDateTime now = LocalDateTime.now();
+            EpicTask epic = createRandomEpicTask();
+            SubTask sub1 = (SubTask) addTime(createRandomSubTask(), now, Duration.ofMinutes(15));
+            SubTask sub2 = (SubTask) addTime(createRandomSubTask(), now.plusHours(1), Duration.ofMinutes(30));
+            Task removed = createRandomSimpleTask();
+
+            TaskManager crashed = Managers.getFileBasedTaskManager(testFile, StorageOptions.withWriteAheadLog());
+            crashed.addTask(epic);
+            crashed.addTask(sub1);
+            crashed.addTask(sub2);
+            crashed.addTask(removed);
+            crashed.addSubTasksToEpic(epic.getId(), sub1.getId(), sub2.getId());
+            crashed.updateStatus(sub1.getId(), EStatus.DONE);
+            crashed.removeTask(removed.getId());
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile,
+                    StorageOptions.withWriteAheadLog())) {
+                assertEquals(3, manager.getAllTasks().size());
+                assertEquals(sub1, manager.peekTaskById(sub1.getId()));
+                assertEquals(sub2, manager.peekTaskById(sub2.getId()));
+                assertEquals(epic, manager.peekTaskById(epic.getId()));
+                assertEquals(EStatus.IN_PROGRESS, manager.peekTaskById(epic.getId()).getStatus());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldRejectStatusUpdateWithoutStatusBeforeLoggingIt() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            TaskManager crashed = Managers.getFileBasedTaskManager(testFile, StorageOptions.withWriteAheadLog());
+            Long id = crashed.addTask(createRandomSimpleTask());
+            assertThrows(IllegalArgumentException.class, () -> crashed.updateStatus(id, null));
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile,
+                    StorageOptions.withWriteAheadLog())) {
+                assertEquals(EStatus.NEW, manager.peekTaskById(id).getStatus());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldReplayNamesAndDescriptionsWithDelimitersFromWriteAheadLog() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            Task comma = new SimpleTask("Buy milk, eggs", "Shop, then home");
+            Task newline = new SimpleTask("Line\nbreak", "First line\r\nsecond line");
+            Task escapes = new SimpleTask("100%2C done", "%0A%");
+
+            TaskManager crashed = Managers.getFileBasedTaskManager(testFile, StorageOptions.withWriteAheadLog());
+            crashed.addTask(comma);
+            crashed.addTask(newline);
+            crashed.addTask(escapes);
+            crashed.updateStatus(comma.getId(), EStatus.DONE);
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile,
+                    StorageOptions.withWriteAheadLog())) {
+                assertEquals(3, manager.getAllTasks().size());
+                assertEquals("Buy milk, eggs", manager.peekTaskById(comma.getId()).getName());
+                assertEquals("Shop, then home", manager.peekTaskById(comma.getId()).getDescription());
+                assertEquals(EStatus.DONE, manager.peekTaskById(comma.getId()).getStatus());
+                assertEquals("Line\nbreak", manager.peekTaskById(newline.getId()).getName());
+                assertEquals("First line\r\nsecond line", manager.peekTaskById(newline.getId()).getDescription());
+                assertEquals("100%2C done", manager.peekTaskById(escapes.getId()).getName());
+                assertEquals("%0A%", manager.peekTaskById(escapes.getId()).getDescription());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldSkipLogRecordsContainedInSnapshotAfterCrashBeforeTruncate() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            LocalDateTime ten = LocalDateTime.of(2024, 1, 1, 10, 0);
+            Task first = addTime(createRandomSimpleTask(), ten, Duration.ofMinutes(30));
+            Task moved = addTime(createRandomSimpleTask(), ten.plusHours(2), Duration.ofMinutes(30));
+            Task second = addTime(createRandomSimpleTask(), ten, Duration.ofMinutes(30));
+            Task later = addTime(createRandomSimpleTask(), ten.plusHours(5), Duration.ofMinutes(30));
+
+            FileBackedTaskManager crashed = FileBackedTaskManager.loadFromFile(testFile,
+                    StorageOptions.withWriteAheadLog());
+            crashed.addTask(first);
+            moved.setId(first.getId());
+            crashed.updateTask(moved);
+            crashed.addTask(second);
+            crashed.save();
+            crashed.addTask(later);
+            assertEquals(5, WriteAheadLog.readRecords(walPath.toFile()).size());
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile,
+                    StorageOptions.withWriteAheadLog())) {
+                assertEquals(List.of(second, moved, later), manager.getPrioritizedTasks());
+            }
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile,
+                    StorageOptions.withWriteAheadLog())) {
+                assertEquals(3, manager.getAllTasks().size());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldReplayBatchesAndDropATornOne() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            EpicTask epic = createRandomEpicTask();
+            SubTask sub = (SubTask) withId(createRandomSubTask(), 100);
+
+            TaskManager crashed = Managers.getFileBasedTaskManager(testFile, StorageOptions.withWriteAheadLog());
+            crashed.addTask(epic);
+            sub.setParent(epic.getId());
+            crashed.applyBatch(List.of(BatchOperation.add(sub), BatchOperation.add(createRandomSimpleTask()),
+                    BatchOperation.status(sub.getId(), EStatus.DONE)), BatchMode.ATOMIC);
+            Files.writeString(walPath, "BATCH,2\nREMOVE," + epic.getId() + "\n", StandardOpenOption.APPEND);
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile,
+                    StorageOptions.withWriteAheadLog())) {
+                assertEquals(3, manager.getAllTasks().size());
+                assertEquals(EStatus.DONE, manager.peekTaskById(sub.getId()).getStatus());
+                assertEquals(EStatus.DONE, manager.peekTaskById(epic.getId()).getStatus());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldDrainGroupCommitQueueOnClose() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            StorageOptions options = StorageOptions.withGroupCommit();
+            options.groupCommitQueueCapacity = 16;
+            options.groupCommitSize = 8;
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                for (int i = 0; i < 1_000; i++) {
+                    manager.addTask(createRandomSimpleTask());
+                }
+                assertTrue(manager.getPendingWrites() <= 16);
+            }
+            assertEquals(List.of("SEQUENCE,1000"), WriteAheadLog.readRecords(walPath.toFile()));
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                assertEquals(1_000, manager.getAllTasks().size());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldCompactOnGroupCommitWriterWithoutLosingLaterRecords() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path walPath = Path.of("testFile.csv.wal");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            StorageOptions options = StorageOptions.withGroupCommit();
+            options.compactionThreshold = 100;
+            options.incrementalSnapshots = true;
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                for (int i = 0; i < 250; i++) {
+                    Long id = manager.addTask(createRandomSimpleTask());
+                    manager.updateStatus(id, EStatus.IN_PROGRESS);
+                }
+            }
+            assertEquals(List.of("SEQUENCE,500"), WriteAheadLog.readRecords(walPath.toFile()));
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                assertEquals(250, manager.getAllTasks().size());
+                manager.getAllTasks().forEach(task -> assertEquals(EStatus.IN_PROGRESS, task.getStatus()));
+            }
+        } finally {
+            SnapshotSegments.deleteSegments(path.toFile());
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(walPath);
+        }
+    }
+
+    @Test
+    void shouldSaveLoadAllTasksWithLinksAndIdWatermark() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            LocalDateTime now = LocalDateTime.now();
+            EpicTask epic = createRandomEpicTask();
+            SubTask sub = (SubTask) addTime(createRandomSubTask(), now, Duration.ofMinutes(45));
+            Task tricky = createRandomSimpleTask();
+            tricky.setName("Name, with \"commas\",\nand a line break");
+
+            Long lastId;
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile)) {
+                manager.addTask(epic);
+                manager.addTask(sub);
+                manager.addTask(tricky);
+                manager.addSubTasksToEpic(epic.getId(), sub.getId());
+                lastId = manager.addTask(createRandomSimpleTask());
+                manager.removeTask(lastId);
+                manager.removeAllByType(TaskType.TASK);
+                manager.addTask(tricky);
+            }
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile)) {
+                assertEquals(3, manager.getAllTasks().size());
+                assertEquals(tricky, manager.peekTaskById(tricky.getId()));
+                assertEquals(epic, manager.peekTaskById(epic.getId()));
+                assertEquals(sub.getId(), manager.findTasksByParentId(epic.getId()).get(0).getId());
+                assertEquals(sub.getEndTime(), manager.peekTaskById(epic.getId()).getEndTime());
+                assertEquals(Long.valueOf(lastId + 1), manager.addTask(createRandomSimpleTask()));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void shouldReplaceMappedSnapshotItWasLoadedFrom() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            StorageOptions options = StorageOptions.withFormat(StorageFormat.MAPPED);
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                manager.addTask(createRandomSimpleTask());
+            }
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                manager.addTask(createRandomSimpleTask());
+                manager.save();
+                manager.addTask(createRandomSimpleTask());
+                manager.save();
+            }
+            assertFalse(TaskSnapshot.tempFileFor(testFile).exists());
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                assertEquals(3, manager.getAllTasks().size());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void shouldSaveLoadMappedSnapshotAndSwitchFormats() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            EpicTask epic = createRandomEpicTask();
+            SubTask sub = (SubTask) addTime(createRandomSubTask(), LocalDateTime.now(), Duration.ofMinutes(30));
+            Task plain = createRandomSimpleTask();
+            plain.setDescription(null);
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile, StorageFormat.MAPPED)) {
+                manager.addTask(epic);
+                manager.addTask(sub);
+                manager.addTask(plain);
+                manager.addSubTasksToEpic(epic.getId(), sub.getId());
+                manager.findTaskById(plain.getId());
+            }
+            assertTrue(MappedTaskSnapshot.isSnapshot(testFile));
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile, StorageFormat.STREAM)) {
+                assertEquals(plain, manager.peekTaskById(plain.getId()));
+                assertEquals(sub, manager.peekTaskById(sub.getId()));
+                assertEquals(sub.getEndTime(), manager.peekTaskById(epic.getId()).getEndTime());
+                assertEquals(plain.getId(), manager.getHistory().get(manager.getHistory().size() - 1).getId());
+            }
+            assertTrue(TaskSnapshot.isSnapshot(testFile));
+
+            try (TaskManager manager = Managers.getFileBasedTaskManager(testFile)) {
+                assertEquals(3, manager.getAllTasks().size());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptedSnapshotsAndLeaveNoTempFile() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path tempPath = Path.of("testFile.csv.tmp");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            for (StorageFormat format : StorageFormat.values()) {
+                try (TaskManager manager = Managers.getFileBasedTaskManager(testFile, format)) {
+                    manager.addTask(createRandomSimpleTask());
+                }
+                assertFalse(Files.exists(tempPath));
+
+                byte[] bytes = Files.readAllBytes(path);
+                bytes[bytes.length / 2] ^= 0x5A;
+                Files.write(path, bytes);
+                assertThrows(ManagerLoadException.class, () -> Managers.getFileBasedTaskManager(testFile, format));
+
+                Files.write(path, new byte[0]);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    @Test
+    void shouldWriteOnlyChangedTasksIntoDeltaSegments() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path firstDelta = Path.of("testFile.csv.1.delta");
+        Path secondDelta = Path.of("testFile.csv.2.delta");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            StorageOptions options = StorageOptions.withIncrementalSnapshots();
+            options.segmentMergeThreshold = 2;
+            EpicTask epic = createRandomEpicTask();
+            SubTask sub = createRandomSubTask();
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                for (int i = 0; i < 20; i++) {
+                    manager.addTask(createRandomSimpleTask());
+                }
+                manager.addTask(epic);
+                manager.addTask(sub);
+                manager.checkpoint();
+                assertFalse(Files.exists(firstDelta));
+
+                manager.addSubTasksToEpic(epic.getId(), sub.getId());
+                manager.updateStatus(sub.getId(), EStatus.DONE);
+                manager.removeTask(0L);
+                manager.checkpoint();
+
+                TaskSnapshot delta = TaskSnapshot.readFrom(firstDelta.toFile());
+                assertEquals(2, delta.tasks.size());
+                assertIterableEquals(List.of(0L), delta.removed);
+            }
+            assertFalse(Files.exists(firstDelta));
+            assertFalse(Files.exists(secondDelta));
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile)) {
+                assertEquals(21, manager.getAllTasks().size());
+                assertEquals(EStatus.DONE, manager.peekTaskById(epic.getId()).getStatus());
+                assertEquals(epic.getId(), ((SubTask) manager.peekTaskById(sub.getId())).getParent());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(firstDelta);
+            Files.deleteIfExists(secondDelta);
+        }
+    }
+
+    @Test
+    void shouldWriteSiblingsOfRecursivelyRemovedSubTaskIntoDeltaSegment() throws Exception {
+        Path path = Path.of("testFile.csv");
+        Path firstDelta = Path.of("testFile.csv.1.delta");
+        try {
+            File testFile = Files.createFile(path).toFile();
+            StorageOptions options = StorageOptions.withIncrementalSnapshots();
+            EpicTask epic = createRandomEpicTask();
+            SubTask sub = createRandomSubTask();
+            SubTask sibling = createRandomSubTask();
+            Task kept = createRandomSimpleTask();
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile, options)) {
+                manager.addTask(epic);
+                manager.addTask(sub);
+                manager.addTask(sibling);
+                manager.addTask(kept);
+                manager.addSubTasksToEpic(epic.getId(), sub.getId(), sibling.getId());
+                manager.checkpoint();
+
+                manager.removeRecursiveTask(sub.getId());
+                assertEquals(1, manager.getAllTasks().size());
+                manager.checkpoint();
+
+                TaskSnapshot delta = TaskSnapshot.readFrom(firstDelta.toFile());
+                assertEquals(List.of(epic.getId(), sub.getId(), sibling.getId()),
+                        delta.removed.stream().sorted().toList());
+            }
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(testFile)) {
+                assertEquals(List.of(kept), manager.getAllTasks());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(firstDelta);
+        }
+    }
+
+    @Test
+    void shouldBulkLoadLegacyCsvWithSubTasksBeforeEpic() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            LocalDateTime now = LocalDateTime.of(2024, 1, 1, 10, 0);
+            Files.write(path, List.of(
+                    "2,SUB,sub 1,DONE,d,01.01.2024 10:00,01.01.2024 10:30,30,1",
+                    "3,SUB,sub 2,NEW,d,01.01.2024 11:00,01.01.2024 12:00,60,1",
+                    "1,EPIC,epic,NEW,d,,,,",
+                    "7,TASK,task,NEW,d,,,,"));
+
+            try (FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(path.toFile())) {
+                Task epic = manager.peekTaskById(1L);
+                assertEquals(EStatus.IN_PROGRESS, epic.getStatus());
+                assertEquals(now, epic.getStartTime());
+                assertEquals(now.plusHours(2), epic.getEndTime());
+                assertEquals(2, manager.findTasksByParentId(1L).size());
+                assertEquals(4, manager.getHistory().size());
+                assertEquals(Long.valueOf(8), manager.addTask(createRandomSimpleTask()));
+            }
+            assertTrue(TaskSnapshot.isSnapshot(path.toFile()));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void shouldRejectLegacyCsvWithIntersectingTasks() throws Exception {
+        Path path = Path.of("testFile.csv");
+        try {
+            Files.write(path, List.of(
+                    "1,TASK,a,NEW,d,01.01.2024 10:00,01.01.2024 11:00,60,",
+                    "2,TASK,b,NEW,d,01.01.2024 10:30,01.01.2024 10:45,15,"));
+
+            assertThrows(IllegalArgumentException.class, () -> FileBackedTaskManager.loadFromFile(path.toFile()));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package tracker;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -9,6 +11,7 @@ import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import task.EStatus;
 import task.EpicTask;
 import task.SimpleTask;
 import task.SubTask;
@@ -17,14 +20,18 @@ import task.TaskType;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static utilities.TaskTestUtilities.addTime;
 import static utilities.TaskTestUtilities.assertListEqualsNoOrder;
 import static utilities.TaskTestUtilities.createRandomEpicTask;
 import static utilities.TaskTestUtilities.createRandomSimpleTask;
 import static utilities.TaskTestUtilities.createRandomSubTask;
 import static utilities.TaskTestUtilities.random;
+import static utilities.TaskTestUtilities.withId;
 
 class InMemoryTaskManagerTest {
     TaskManager taskManager;
@@ -310,6 +317,414 @@ class InMemoryTaskManagerTest {
         assertEquals(0, taskManager.getHistory().size());
     }
 
+    @Test
+    void shouldThrowWhenTasksIntersect() {
+        LocalDateTime now = LocalDateTime.now();
+        taskManager.addTask(addTime(createRandomSimpleTask(), now, Duration.ofMinutes(60)));
+        taskManager.addTask(addTime(createRandomSimpleTask(), now.plusMinutes(60), Duration.ofMinutes(30)));
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(
+                addTime(createRandomSubTask(), now.minusMinutes(10), Duration.ofMinutes(20))));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(
+                addTime(createRandomSubTask(), now.plusMinutes(80), Duration.ofMinutes(5))));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(
+                addTime(createRandomSubTask(), now, Duration.ofMinutes(0))));
+        taskManager.addTask(addTime(createRandomSimpleTask(), now.plusMinutes(90), Duration.ofMinutes(10)));
+        taskManager.addTask(addTime(createRandomSimpleTask(), now.minusMinutes(10), Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void shouldRescheduleTaskIntoItsOwnSlot() {
+        LocalDateTime now = LocalDateTime.now();
+        Long id = taskManager.addTask(addTime(createRandomSimpleTask(), now, Duration.ofMinutes(60)));
+        taskManager.addTask(addTime(createRandomSimpleTask(), now.plusMinutes(120), Duration.ofMinutes(60)));
+
+        SimpleTask moved = (SimpleTask) addTime(createRandomSimpleTask(), now.plusMinutes(30), Duration.ofMinutes(60));
+        moved.setId(id);
+        taskManager.updateTask(moved);
+
+        assertEquals(moved, taskManager.findSimpleTask(id));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.addTask(
+                addTime(createRandomSimpleTask(), now.plusMinutes(80), Duration.ofMinutes(5))));
+    }
+
+    @Test
+    void shouldKeepPrioritizedTasksInSyncWhenRescheduleAndRemove() {
+        LocalDateTime now = LocalDateTime.now();
+        SimpleTask first = (SimpleTask) addTime(createRandomSimpleTask(), now, Duration.ofMinutes(10));
+        SimpleTask second = (SimpleTask) addTime(createRandomSimpleTask(), now.plusHours(1), Duration.ofMinutes(10));
+        SimpleTask third = (SimpleTask) addTime(createRandomSimpleTask(), now.plusHours(2), Duration.ofMinutes(10));
+        taskManager.addTask(first);
+        taskManager.addTask(second);
+        taskManager.addTask(third);
+
+        SimpleTask moved = (SimpleTask) addTime(createRandomSimpleTask(), now.plusHours(3), Duration.ofMinutes(10));
+        moved.setId(first.getId());
+        taskManager.updateTask(moved);
+        taskManager.removeTask(second.getId());
+
+        assertArrayEquals(new Task[]{third, moved}, taskManager.getPrioritizedTasks().toArray());
+
+        taskManager.removeAllByType(TaskType.TASK);
+        assertEquals(0, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldKeepTasksWithSameStartInPrioritized() {
+        LocalDateTime now = LocalDateTime.now();
+        EpicTask epic = (EpicTask) addTime(createRandomEpicTask(), now, Duration.ofMinutes(30));
+        SubTask sub = (SubTask) addTime(createRandomSubTask(), now, Duration.ofMinutes(30));
+        taskManager.addTask(epic);
+        taskManager.addTask(sub);
+
+        assertArrayEquals(new Task[]{epic, sub}, taskManager.getPrioritizedTasks().toArray());
+
+        taskManager.updateTask(sub);
+        taskManager.updateTask(epic);
+        assertArrayEquals(new Task[]{epic, sub}, taskManager.getPrioritizedTasks().toArray());
+    }
+
+    @Test
+    void shouldMaintainEpicAggregatesOnSubTaskChanges() {
+        LocalDateTime now = LocalDateTime.now();
+        EpicTask epic = createRandomEpicTask();
+        SubTask sub1 = (SubTask) addTime(createRandomSubTask(), now, Duration.ofMinutes(30));
+        SubTask sub2 = (SubTask) addTime(createRandomSubTask(), now.plusHours(1), Duration.ofMinutes(45));
+        Long eid = taskManager.addTask(epic);
+        taskManager.addTask(sub1);
+        taskManager.addTask(sub2);
+        taskManager.addSubTasksToEpic(eid, sub1.getId(), sub2.getId());
+
+        assertEquals(2, epic.getSubTasksCount(EStatus.NEW));
+        assertEquals(Duration.ofMinutes(75), epic.getDuration());
+        assertEquals(sub1.getStartTime(), epic.getStartTime());
+        assertEquals(sub2.getEndTime(), epic.getEndTime());
+
+        taskManager.updateStatus(sub1.getId(), EStatus.DONE);
+        assertEquals(EStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(1, epic.getSubTasksCount(EStatus.DONE));
+
+        SubTask moved = (SubTask) addTime(createRandomSubTask(), now.plusHours(3), Duration.ofMinutes(15));
+        moved.setId(sub2.getId());
+        moved.setParent(eid);
+        moved.setStatus(EStatus.DONE);
+        taskManager.updateTask(moved);
+        assertEquals(EStatus.DONE, epic.getStatus());
+        assertEquals(Duration.ofMinutes(45), epic.getDuration());
+        assertEquals(moved.getEndTime(), epic.getEndTime());
+
+        taskManager.removeTask(sub1.getId());
+        assertEquals(moved.getStartTime(), epic.getStartTime());
+        assertEquals(Duration.ofMinutes(15), epic.getSubTasksDuration());
+
+        taskManager.removeTask(moved.getId());
+        assertEquals(EStatus.NEW, epic.getStatus());
+        assertNull(epic.getStartTime());
+    }
+
+    @Test
+    void shouldRekeyEpicInPrioritizedWhenItsStartMoves() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 9, 0);
+        EpicTask epic = createRandomEpicTask();
+        taskManager.addTask(epic);
+        SubTask sub = (SubTask) addTime(createRandomSubTask(), start, Duration.ofMinutes(30));
+        sub.setParent(epic.getId());
+        taskManager.addTask(sub);
+        Task other = addTime(createRandomSimpleTask(), start.plusMonths(5), Duration.ofMinutes(30));
+        taskManager.addTask(other);
+
+        assertEquals(List.of(epic, sub, other), taskManager.getPrioritizedTasks());
+
+        SubTask moved = (SubTask) addTime(createRandomSubTask(), start.plusMonths(8), Duration.ofMinutes(30));
+        moved.setId(sub.getId());
+        moved.setParent(epic.getId());
+        taskManager.updateTask(moved);
+        assertEquals(List.of(other, epic, moved), taskManager.getPrioritizedTasks());
+
+        taskManager.removeTask(moved.getId());
+        assertEquals(List.of(other), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldNotRecordHistoryForInternalLookups() {
+        EpicTask epic = createRandomEpicTask();
+        SubTask sub1 = createRandomSubTask();
+        SubTask sub2 = createRandomSubTask();
+        taskManager.addTask(epic);
+        taskManager.addTask(sub1);
+        taskManager.addTask(sub2);
+        taskManager.addSubTasksToEpic(epic.getId(), sub1.getId(), sub2.getId());
+        List<Task> expected = taskManager.getHistory();
+
+        taskManager.updateStatus(sub1.getId(), EStatus.DONE);
+        taskManager.findTasksByParentId(epic.getId());
+        assertEquals(epic, taskManager.peekTaskById(epic.getId()));
+
+        assertEquals(expected, taskManager.getHistory());
+
+        taskManager.removeTask(sub2.getId());
+        assertEquals(List.of(epic, sub1), taskManager.getHistory());
+    }
+
+    @Test
+    void shouldKeepSubTaskIdsOfCopiesUnchanged() {
+        EpicTask epic = createRandomEpicTask();
+        SubTask sub1 = createRandomSubTask();
+        SubTask sub2 = createRandomSubTask();
+        taskManager.addTask(epic);
+        taskManager.addTask(sub1);
+        taskManager.addTask(sub2);
+        taskManager.addSubTasksToEpic(epic.getId(), sub2.getId());
+        EpicTask copy = new EpicTask(epic);
+
+        taskManager.addSubTasksToEpic(epic.getId(), sub1.getId());
+        taskManager.removeTask(sub2.getId());
+
+        assertEquals(List.of(sub2.getId()), copy.getSubTasksIds());
+        assertEquals(List.of(sub1.getId()), epic.getSubTasksIds());
+        assertEquals(1, epic.getSubTasksCount());
+
+        epic.addSubTasks(9L, 3L, 9L, sub1.getId());
+        List<Long> visited = new ArrayList<>();
+        epic.forEachSubTaskId(visited::add);
+        assertEquals(List.of(sub1.getId(), 3L, 9L).stream().sorted().toList(), visited);
+    }
+
+    @Test
+    void shouldKeepAggregatesOfCopiesApart() {
+        EpicTask epic = createRandomEpicTask();
+        SubTask sub = createRandomSubTask();
+        SubTask done = createRandomSubTask();
+        taskManager.addTask(epic);
+        taskManager.addTask(sub);
+        taskManager.addTask(done);
+        taskManager.updateStatus(done.getId(), EStatus.DONE);
+        taskManager.addSubTasksToEpic(epic.getId(), sub.getId());
+        EpicTask copy = new EpicTask(epic);
+
+        copy.putSubTask(done);
+        assertEquals(1, copy.getSubTasksCount(EStatus.DONE));
+        assertEquals(0, epic.getSubTasksCount(EStatus.DONE));
+        assertEquals(EStatus.NEW, epic.getStatus());
+
+        taskManager.removeTask(sub.getId());
+        assertEquals(0, epic.getSubTasksCount(EStatus.NEW));
+        assertEquals(1, copy.getSubTasksCount(EStatus.NEW));
+    }
+
+    @Test
+    void shouldPageTasksInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(taskManager.addTask(createRandomSimpleTask()));
+            taskManager.addTask(createRandomEpicTask());
+        }
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<? extends Task> page = taskManager.getTasksPage(TaskType.TASK, cursor, 3);
+            page.items.forEach(task -> paged.add(task.getId()));
+            cursor = page.nextCursor;
+        } while (cursor != null);
+
+        assertEquals(ids, paged);
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getTasksPage(TaskType.TASK, "x", 3));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getTasksPage(TaskType.TASK, null, 0));
+    }
+
+    @Test
+    void shouldPagePrioritizedTasksWithinRange() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Task task = addTime(createRandomSimpleTask(), start.plusHours(i), Duration.ofMinutes(30));
+            taskManager.addTask(task);
+            tasks.add(task);
+        }
+
+        Page<Task> first = taskManager.getPrioritizedPage(start.plusHours(2), start.plusHours(7), null, 3);
+        assertEquals(tasks.subList(2, 5), first.items);
+        Page<Task> second = taskManager.getPrioritizedPage(start.plusHours(2), start.plusHours(7), first.nextCursor, 3);
+        assertEquals(tasks.subList(5, 7), second.items);
+        assertNull(second.nextCursor);
+
+        taskManager.removeTask(tasks.get(4).getId());
+        assertEquals(tasks.subList(5, 7),
+                taskManager.getPrioritizedPage(start.plusHours(2), start.plusHours(7), first.nextCursor, 3).items);
+    }
+
+    @Test
+    void shouldPageHistory() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = createRandomSimpleTask();
+            taskManager.addTask(task);
+            tasks.add(task);
+        }
+
+        Page<Task> first = taskManager.getHistoryPage(null, 2);
+        Page<Task> second = taskManager.getHistoryPage(first.nextCursor, 2);
+        Page<Task> third = taskManager.getHistoryPage(second.nextCursor, 2);
+
+        assertEquals(tasks.subList(0, 2), first.items);
+        assertEquals(tasks.subList(2, 4), second.items);
+        assertEquals(tasks.subList(4, 5), third.items);
+        assertNull(third.nextCursor);
+
+        taskManager.removeTask(tasks.get(1).getId());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getHistoryPage(first.nextCursor, 2));
+    }
+
+    @Test
+    void shouldPageWholeHistoryWithLargestLimit() {
+        taskManager.addTask(createRandomSimpleTask());
+        taskManager.addTask(createRandomSimpleTask());
+
+        Page<Task> page = taskManager.getHistoryPage(null, Integer.MAX_VALUE);
+
+        assertEquals(2, page.items.size());
+        assertNull(page.nextCursor);
+    }
+
+    @Test
+    void shouldBumpVersionsOfChangedTypesOnly() {
+        EpicTask epic = createRandomEpicTask();
+        taskManager.addTask(epic);
+        SubTask sub = createRandomSubTask();
+        sub.setParent(epic.getId());
+        taskManager.addTask(addTime(sub, LocalDateTime.of(2024, 1, 1, 9, 0), Duration.ofMinutes(30)));
+        long tasks = taskManager.getVersion(TaskType.TASK);
+        long epics = taskManager.getVersion(TaskType.EPIC);
+        long prioritized = taskManager.getPrioritizedVersion();
+
+        taskManager.updateStatus(sub.getId(), EStatus.DONE);
+        assertEquals(tasks, taskManager.getVersion(TaskType.TASK));
+        assertTrue(taskManager.getVersion(TaskType.EPIC) > epics);
+        assertTrue(taskManager.getPrioritizedVersion() > prioritized);
+
+        prioritized = taskManager.getPrioritizedVersion();
+        taskManager.addTask(createRandomSimpleTask());
+        assertTrue(taskManager.getVersion(TaskType.TASK) > tasks);
+        assertEquals(prioritized, taskManager.getPrioritizedVersion());
+
+        long subs = taskManager.getVersion(TaskType.SUB);
+        taskManager.removeTask(sub.getId());
+        assertTrue(taskManager.getVersion(TaskType.SUB) > subs);
+        assertTrue(taskManager.getPrioritizedVersion() > prioritized);
+    }
+
+    @Test
+    void shouldApplyBatchAndRecalculateEpics() {
+        EpicTask epic = createRandomEpicTask();
+        taskManager.addTask(epic);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        SubTask sub1 = (SubTask) withId(createRandomSubTask(), 100);
+        sub1.setParent(epic.getId());
+        SubTask sub2 = (SubTask) withId(createRandomSubTask(), 101);
+        sub2.setParent(epic.getId());
+        addTime(sub1, start, Duration.ofMinutes(30));
+        addTime(sub2, start.plusHours(1), Duration.ofMinutes(30));
+
+        List<BatchResult> results = taskManager.applyBatch(List.of(
+                BatchOperation.add(sub1),
+                BatchOperation.add(sub2),
+                BatchOperation.status(sub1.getId(), EStatus.DONE),
+                BatchOperation.add(createRandomSimpleTask())), BatchMode.ATOMIC);
+
+        assertTrue(results.stream().allMatch(result -> result.applied));
+        assertEquals(Long.valueOf(100), results.get(0).id);
+        assertEquals(Long.valueOf(102), results.get(3).id);
+        assertEquals(List.of(sub1, sub2), taskManager.findTasksByParentId(epic.getId()));
+        assertEquals(EStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusHours(1).plusMinutes(30), epic.getEndTime());
+        assertEquals(4, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldApplyAtomicBatchCompletelyOrNotAtAll() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        Task existing = addTime(createRandomSimpleTask(), start, Duration.ofMinutes(60));
+        taskManager.addTask(existing);
+        Task free = addTime(createRandomSimpleTask(), start.plusHours(2), Duration.ofMinutes(60));
+        Task clashing = addTime(createRandomSimpleTask(), start.plusMinutes(30), Duration.ofMinutes(60));
+
+        List<BatchResult> atomic = taskManager.applyBatch(
+                List.of(BatchOperation.add(free), BatchOperation.add(clashing)), BatchMode.ATOMIC);
+        assertFalse(atomic.get(0).applied);
+        assertEquals("Tasks intersection.", atomic.get(1).error);
+        assertNull(free.getId());
+        assertEquals(1, taskManager.getAllTasks().size());
+
+        List<BatchResult> bestEffort = taskManager.applyBatch(
+                List.of(BatchOperation.add(free), BatchOperation.add(clashing)), BatchMode.BEST_EFFORT);
+        assertTrue(bestEffort.get(0).applied);
+        assertFalse(bestEffort.get(1).applied);
+        assertEquals(2, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldValidateBatchOperationsAgainstEarlierOnes() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        Task existing = addTime(createRandomSimpleTask(), start, Duration.ofMinutes(60));
+        taskManager.addTask(existing);
+        Task replacement = addTime(createRandomSimpleTask(), start, Duration.ofMinutes(60));
+        Task first = addTime(createRandomSimpleTask(), start.plusHours(3), Duration.ofMinutes(60));
+        Task second = addTime(createRandomSimpleTask(), start.plusHours(3), Duration.ofMinutes(60));
+
+        List<BatchResult> results = taskManager.applyBatch(List.of(
+                BatchOperation.remove(existing.getId()),
+                BatchOperation.add(replacement),
+                BatchOperation.add(first),
+                BatchOperation.add(second),
+                BatchOperation.status(existing.getId(), EStatus.DONE)), BatchMode.BEST_EFFORT);
+
+        assertTrue(results.get(0).applied);
+        assertTrue(results.get(1).applied);
+        assertTrue(results.get(2).applied);
+        assertEquals("Tasks intersection.", results.get(3).error);
+        assertFalse(results.get(4).applied);
+        assertEquals(List.of(replacement, first), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldNotGenerateIdsTakenByExplicitIdsOfTheSameBatch() {
+        taskManager.addTask(createRandomSimpleTask());
+        Task generated = createRandomSimpleTask();
+        Task explicit = withId(createRandomSimpleTask(), 1);
+
+        List<BatchResult> results = taskManager.applyBatch(
+                List.of(BatchOperation.add(generated), BatchOperation.add(explicit)), BatchMode.ATOMIC);
+
+        assertTrue(results.stream().allMatch(result -> result.applied));
+        assertEquals(Long.valueOf(2), results.get(0).id);
+        assertEquals(Long.valueOf(1), results.get(1).id);
+        assertEquals(3, taskManager.getAllTasks().size());
+        assertEquals(generated, taskManager.peekTaskById(2L));
+        assertEquals(explicit, taskManager.peekTaskById(1L));
+    }
+
+    @Test
+    void shouldRejectBatchSubTaskWhoseEpicIsNotAddedBeforeIt() {
+        EpicTask epic = (EpicTask) withId(createRandomEpicTask(), 10);
+        SubTask early = (SubTask) withId(createRandomSubTask(), 11);
+        early.setParent(epic.getId());
+        SubTask late = (SubTask) withId(createRandomSubTask(), 12);
+        late.setParent(epic.getId());
+
+        List<BatchResult> results = taskManager.applyBatch(List.of(
+                BatchOperation.add(early),
+                BatchOperation.add(epic),
+                BatchOperation.add(late)), BatchMode.BEST_EFFORT);
+
+        assertEquals("Did not find epic task with id: [10]", results.get(0).error);
+        assertTrue(results.get(1).applied);
+        assertTrue(results.get(2).applied);
+        assertNull(taskManager.peekTaskById(early.getId()));
+        assertEquals(List.of(late), taskManager.findTasksByParentId(epic.getId()));
+    }
+
     @Test
     void extraTask() {
         Task simpleTask1 = createRandomSimpleTask();